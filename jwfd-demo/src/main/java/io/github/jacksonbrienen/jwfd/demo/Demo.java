@@ -20,10 +20,10 @@ public class Demo {
         JFrame frame = new JFrame("Demo");
         FileExtension[] filters = new FileExtension[] {
                 FileExtension.ALL,
-                new FileExtension("PNG Image", "png"),
-                new FileExtension("JPG Image", "jpg", "jpeg"),
-                new FileExtension("Text Document", "txt"),
-                new FileExtension("HTML Document", "htm", "html")
+                FileExtension.forExtension("png"),
+                FileExtension.forExtension("jpg"),
+                FileExtension.forExtension("txt"),
+                FileExtension.forMimeType("text/html")
         };
 
         frame.setResizable(false);
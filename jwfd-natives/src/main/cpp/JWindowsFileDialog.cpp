@@ -129,6 +129,34 @@ JNIEXPORT jobjectArray JNICALL Java_io_github_jacksonbrienen_jwfd_WindowsFileDia
     return value;
 }
 
+JNIEXPORT jstring JNICALL Java_io_github_jacksonbrienen_jwfd_WindowsFileDialog_openMultipleCompactDialog0(JNIEnv* env, jclass obj, jobject frame, jstring title, jstring startingDir, jstring filters) {
+    HWND hwnd;
+    if (getHWND(hwnd, env, frame) != HWND_SUCCESS)
+        return nullptr;
+
+    const wchar_t* wtitle = (const wchar_t*)env->GetStringChars(title, JNI_FALSE);
+    const wchar_t* wstartingDir = (const wchar_t*)env->GetStringChars(startingDir, JNI_FALSE);
+
+
+    long filterSize = 0;
+    const wchar_t* wfilter = nullptr;
+    COMDLG_FILTERSPEC* comFilters = nullptr;
+
+    if (filters != nullptr) {
+        createJavaFilter(env, filters, wfilter, comFilters, filterSize);
+    }
+
+    jstring value;
+    unsigned short code = openMultiCompactDialog(env, value, hwnd, wtitle, wstartingDir, comFilters, filterSize);
+    freeJavaFilter(env, filters, wfilter, comFilters);
+    env->ReleaseStringChars(title, (const jchar*)wtitle);
+    env->ReleaseStringChars(startingDir, (const jchar*)wstartingDir);
+    if (code != DIALOG_SUCCESS)
+        return nullptr;
+
+    return value;
+}
+
 JNIEXPORT jstring JNICALL Java_io_github_jacksonbrienen_jwfd_WindowsFileDialog_openDirDialog0(JNIEnv* env, jclass obj, jobject frame, jstring title, jstring startingDir) {
     HWND hwnd;
     if (getHWND(hwnd, env, frame) != HWND_SUCCESS)
@@ -75,6 +75,19 @@ extern "C" {
 	 */
 	JNIEXPORT jobjectArray JNICALL Java_io_github_jacksonbrienen_jwfd_WindowsFileDialog_openMultipleDialog0(JNIEnv *env, jclass obj, jobject frame, jstring title, jstring startingDir, jstring filters);
 
+	/*!
+	 * Opens a native Windows file dialog to open multiple files, returning the selection compactly.
+	 * @param[in] env The Java enviornment which called this function.
+	 * @param[in] obj The Java object or class which called this function.
+	 * @param[in] frame A Frame or JFrame object that will be used for the dialogs modality. May be null.
+	 * @param[in] title The title of the displayed dialog.
+	 * @param[in] startingDir The starting directory for the displayed dialog.
+	 * @param[in] filters Passed as a cstring style array in form description, extensions.
+	 * @return a single string of null terminated records, each directory once followed by the names of the files selected in it, or null if no paths are selected.
+	 * @warning This function should not be called from this code, only to be called through java JNI access.
+	 */
+	JNIEXPORT jstring JNICALL Java_io_github_jacksonbrienen_jwfd_WindowsFileDialog_openMultipleCompactDialog0(JNIEnv *env, jclass obj, jobject frame, jstring title, jstring startingDir, jstring filters);
+
 	/*!
 	 * Opens a native Windows file dialog to open a folder.
 	 * @param[in] env The Java enviornment which called this function.
@@ -9,9 +9,23 @@
 #include "JWindowsFileDialog.h"
 
 enum DIALOG_TYPE {
-	SAVE, OPEN, OPEN_MULTIPLE, OPEN_DIR
+	SAVE, OPEN, OPEN_MULTIPLE, OPEN_MULTIPLE_COMPACT, OPEN_DIR
 };
 
+// appends a path to the records of a compact selection, adding a directory record only when the directory changes
+static void appendRecord(std::wstring& records, std::wstring& directory, const wchar_t* filePath) {
+	const wchar_t* name = wcsrchr(filePath, L'\\');
+	name = (name == nullptr) ? filePath : name + 1;
+	size_t directoryLength = name - filePath;
+	if (directory.size() != directoryLength || directory.compare(0, directoryLength, filePath, directoryLength) != 0) {
+		directory.assign(filePath, directoryLength);
+		records.append(directory);
+		records.push_back(L'\0');
+	}
+	records.append(name);
+	records.push_back(L'\0');
+}
+
 unsigned short showDialog(JNIEnv* env, void *&path, HWND hwnd, const wchar_t* title, const wchar_t* startingDir, COMDLG_FILTERSPEC* filters, long filterSize, DIALOG_TYPE type) {
 	path = nullptr;
 
@@ -42,6 +56,7 @@ unsigned short showDialog(JNIEnv* env, void *&path, HWND hwnd, const wchar_t* ti
 	case OPEN:
 		break;
 	case OPEN_MULTIPLE:
+	case OPEN_MULTIPLE_COMPACT:
 		options |= FOS_ALLOWMULTISELECT;
 		break;
 	case OPEN_DIR:
@@ -102,7 +117,7 @@ unsigned short showDialog(JNIEnv* env, void *&path, HWND hwnd, const wchar_t* ti
 	EnableWindow(hwnd, false);
 
 	if (SUCCEEDED(dialog->Show(hwnd))) {
-		if (type == OPEN_MULTIPLE) {
+		if (type == OPEN_MULTIPLE || type == OPEN_MULTIPLE_COMPACT) {
 
 			IShellItemArray *itemArr;
 			if (FAILED(((IFileOpenDialog*)dialog)->GetResults(&itemArr))) {
@@ -123,7 +138,11 @@ unsigned short showDialog(JNIEnv* env, void *&path, HWND hwnd, const wchar_t* ti
 				return GET_RESULTS_SIZE_FAIL;
 			}
 			
-			path = env->NewObjectArray((long)size, env->FindClass("java/lang/String"), nullptr);
+			// a compact selection is returned as a single string, holding each directory once followed by the names in it
+			std::wstring records;
+			std::wstring directory;
+			if (type == OPEN_MULTIPLE)
+				path = env->NewObjectArray((long)size, env->FindClass("java/lang/String"), nullptr);
 
 			for (unsigned long i = 0; i < size; i++) {
 				IShellItem *item;
@@ -145,11 +164,16 @@ unsigned short showDialog(JNIEnv* env, void *&path, HWND hwnd, const wchar_t* ti
 					CoUninitialize();
 					return PARSE_FILE_FAIL;
 				}
-				env->SetObjectArrayElement((jobjectArray)path, i, env->NewString((const jchar*) filePath, lstrlenW(filePath)));
+				if (type == OPEN_MULTIPLE)
+					env->SetObjectArrayElement((jobjectArray)path, i, env->NewString((const jchar*) filePath, lstrlenW(filePath)));
+				else
+					appendRecord(records, directory, filePath);
 				CoTaskMemFree(filePath);
 				item->Release();
 			}
 			itemArr->Release();
+			if (type == OPEN_MULTIPLE_COMPACT)
+				path = env->NewString((const jchar*)records.data(), (jsize)records.size());
 		}
 		else {
 			IShellItem* item;
@@ -194,6 +218,10 @@ unsigned short openMultiDialog(JNIEnv* env, jobjectArray& paths, HWND hwnd, cons
 	return showDialog(env, (void*&)paths, hwnd, title, startingDir, filters, filterSize, OPEN_MULTIPLE);
 }
 
+unsigned short openMultiCompactDialog(JNIEnv* env, jstring& records, HWND hwnd, const wchar_t* title, const wchar_t* startingDir, COMDLG_FILTERSPEC* filters, long filterSize) {
+	return showDialog(env, (void*&)records, hwnd, title, startingDir, filters, filterSize, OPEN_MULTIPLE_COMPACT);
+}
+
 unsigned short openDirDialog(JNIEnv* env, jstring& path, HWND hwnd, const wchar_t* title, const wchar_t* startingDir) {
 	return showDialog(env, (void*&)path, hwnd, title, startingDir, nullptr, 0, OPEN_DIR);
 }
\ No newline at end of file
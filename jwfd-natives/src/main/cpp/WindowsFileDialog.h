@@ -84,6 +84,21 @@ unsigned short openSaveDialog(JNIEnv* env, jstring& path, HWND hwnd, const wchar
  */
 unsigned short openMultiDialog(JNIEnv* env, jobjectArray& paths, HWND hwnd, const wchar_t* title, const wchar_t* startingDir, COMDLG_FILTERSPEC* filters, long filterSize);
 
+/*!
+ * Opens a Windows Open Multiple Files Dialog, returning the selection as a single string of records.
+ * Each record ends with a null character, a record holding a backslash is a directory, which ends with the backslash,
+ * and any other record is the name of a file in the last directory.
+ * @param[in] env The Java enviornment which called this function.
+ * @param[out] records The location where the resulting records should be placed
+ * @param[in] hwnd The handler for the frame this dialog should use as its parent for modality.
+ * @param[in] title The title to be displayed on the dialog.
+ * @param[in] startingDir The location where the dialog should start in.
+ * @param[in] filters An array of filters which are used to filter the results of the dialog. This may be null only if filterSize is set to 0.
+ * @param[in] filterSize The size of the filters array.
+ * @returns DIALOG_SUCCESS if successfully dialog creation or an error code if not
+ */
+unsigned short openMultiCompactDialog(JNIEnv* env, jstring& records, HWND hwnd, const wchar_t* title, const wchar_t* startingDir, COMDLG_FILTERSPEC* filters, long filterSize);
+
 /*!
  * Opens a Windows Open Folder Dialog
  * @param[in] env The Java enviornment which called this function.
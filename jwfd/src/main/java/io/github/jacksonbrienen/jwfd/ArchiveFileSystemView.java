@@ -0,0 +1,305 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileSystemView;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The <code>FileSystemView</code> of a <code>JFileDialog</code> that can browse file systems other than the default
+ * one, such as the inside of zip and jar archives.<br>
+ * Files of the default file system are left to the <code>FileSystemView</code> of the platform. Archives are shown as
+ * folders, and entering one opens it as a zip <code>FileSystem</code>, whose entries are shown as <code>PathFile</code>s
+ * and read straight from the archive, nothing is extracted. Any other <code>FileSystem</code>, such as an in memory
+ * file system, can be browsed by starting the dialog at one of its paths.<br>
+ * The archives opened by a view stay open while its dialog is showing, and are closed by {@link #close(Collection)}
+ * once it is closed, apart from those holding a selected file returned as a <code>Path</code>, which the caller closes
+ * through the file system of the selected <code>Path</code>. A selection returned as <code>URI</code> strings keeps no
+ * archive open.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see PathFile
+ */
+final class ArchiveFileSystemView extends FileSystemView {
+
+    // the extensions of the files that are opened as archives, every one of them is read by the zip file system
+    private static final String[] ARCHIVE_EXTENSIONS = {".zip", ".jar"};
+
+    private final FileSystemView delegate;
+    // the archives opened so far, and the other file systems browsed, by the root shown for them, guarded by itself
+    private final Map<File, FileSystem> opened = new LinkedHashMap<>();
+    private final Map<FileSystem, PathFile> roots = new LinkedHashMap<>();
+
+    /**
+     * Constructs a new <code>ArchiveFileSystemView</code>.
+     * @param delegate The view used for files of the default file system.
+     */
+    ArchiveFileSystemView(FileSystemView delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @param f A file.
+     * @return true if the file is an archive of the default file system that is shown as a folder.
+     */
+    static boolean isArchive(File f) {
+        if(f == null || f instanceof PathFile)
+            return false;
+        String name = f.getName().toLowerCase();
+        for(String extension : ARCHIVE_EXTENSIONS)
+            if(name.endsWith(extension))
+                return f.isFile();
+        return false;
+    }
+
+    /**
+     * Tests a listed entry the same as {@link #isArchive(File)}, without creating a <code>File</code> for it.
+     * @param view A view of the listing the entry belongs to.
+     * @param slot The slot of the entry.
+     * @return true if the entry is an archive that is shown as a folder.
+     */
+    static boolean isArchive(DirectoryListing.View view, int slot) {
+        if(view.isDirectory(slot) || view.isForeign() && view.file(slot) instanceof PathFile)
+            return false;
+        for(String extension : ARCHIVE_EXTENSIONS)
+            if(view.nameEndsWith(slot, extension))
+                return true;
+        return false;
+    }
+
+    /**
+     * Finds the folder an archive is browsed through, opening the archive if it is not open yet.
+     * @param f A file, which may be an archive.
+     * @return the root of the archive if the file is an archive, the file itself if it is not, or null if the archive cannot be opened.
+     */
+    File enter(File f) {
+        if(!isArchive(f))
+            return f;
+        File archive = f.getAbsoluteFile();
+        synchronized(opened) {
+            FileSystem fs = opened.get(archive);
+            if(fs == null || !fs.isOpen()) {
+                try {
+                    fs = FileSystems.newFileSystem(archive.toPath(), (ClassLoader) null);
+                } catch (IOException | RuntimeException e) {
+                    // not an archive the zip file system can read, or no longer there
+                    return null;
+                }
+                opened.put(archive, fs);
+                roots.put(fs, new PathFile(fs.getRootDirectories().iterator().next(), archive));
+            }
+            return roots.get(fs);
+        }
+    }
+
+    /**
+     * Registers a file system given by the caller, so paths of it typed into the chooser are found.
+     * @param f A file of the file system.
+     */
+    void register(PathFile f) {
+        FileSystem fs = f.toPath().getFileSystem();
+        synchronized(opened) {
+            if(!roots.containsKey(fs))
+                roots.put(fs, new PathFile(f.toPath().getRoot(), null));
+        }
+    }
+
+    /**
+     * Closes the archives opened by this view.
+     * @param keep The files chosen in the dialog, the archives holding any of them are left open.
+     */
+    void close(Collection<File> keep) {
+        Set<FileSystem> kept = new HashSet<>();
+        for(File f : keep)
+            if(f instanceof PathFile)
+                kept.add(f.toPath().getFileSystem());
+        synchronized(opened) {
+            for(Iterator<FileSystem> it = opened.values().iterator(); it.hasNext();) {
+                FileSystem fs = it.next();
+                if(kept.contains(fs))
+                    continue;
+                try {
+                    fs.close();
+                } catch (IOException ignored) {}
+                it.remove();
+                roots.remove(fs);
+            }
+        }
+    }
+
+    @Override
+    public boolean isRoot(File f) {
+        return !(f instanceof PathFile) && delegate.isRoot(f);
+    }
+
+    @Override
+    public Boolean isTraversable(File f) {
+        if(f instanceof PathFile)
+            return f.isDirectory();
+        return isArchive(f) ? Boolean.TRUE : delegate.isTraversable(f);
+    }
+
+    @Override
+    public String getSystemDisplayName(File f) {
+        return f instanceof PathFile ? f.getName() : delegate.getSystemDisplayName(f);
+    }
+
+    @Override
+    public String getSystemTypeDescription(File f) {
+        return f instanceof PathFile ? null : delegate.getSystemTypeDescription(f);
+    }
+
+    @Override
+    public Icon getSystemIcon(File f) {
+        if(f instanceof PathFile)
+            return UIManager.getIcon(f.isDirectory() ? "FileView.directoryIcon" : "FileView.fileIcon");
+        return delegate.getSystemIcon(f);
+    }
+
+    @Override
+    public boolean isParent(File folder, File file) {
+        if(folder instanceof PathFile || file instanceof PathFile)
+            return folder != null && file != null && folder.equals(file.getParentFile());
+        return delegate.isParent(folder, file);
+    }
+
+    @Override
+    public File getChild(File parent, String fileName) {
+        return parent instanceof PathFile ? ((PathFile) parent).resolve(fileName) : delegate.getChild(parent, fileName);
+    }
+
+    @Override
+    public boolean isFileSystem(File f) {
+        // files of other file systems are listed through this view, never through their path
+        return !(f instanceof PathFile) && !isArchive(f) && delegate.isFileSystem(f);
+    }
+
+    @Override
+    public File createNewFolder(File containingDir) throws IOException {
+        if(!(containingDir instanceof PathFile))
+            return delegate.createNewFolder(containingDir);
+        PathFile directory = (PathFile) containingDir;
+        if(directory.getArchive() != null)
+            throw new IOException("The archive " + directory.getArchive() + " is read only");
+        PathFile folder = directory.resolve("NewFolder");
+        for(int i = 1; folder.exists(); i++)
+            folder = directory.resolve("NewFolder." + i);
+        Files.createDirectory(folder.toPath());
+        return folder;
+    }
+
+    @Override
+    public boolean isHiddenFile(File f) {
+        return f instanceof PathFile ? f.isHidden() : delegate.isHiddenFile(f);
+    }
+
+    @Override
+    public boolean isFileSystemRoot(File dir) {
+        return !(dir instanceof PathFile) && delegate.isFileSystemRoot(dir);
+    }
+
+    @Override
+    public boolean isDrive(File dir) {
+        return !(dir instanceof PathFile) && delegate.isDrive(dir);
+    }
+
+    @Override
+    public boolean isFloppyDrive(File dir) {
+        return !(dir instanceof PathFile) && delegate.isFloppyDrive(dir);
+    }
+
+    @Override
+    public boolean isComputerNode(File dir) {
+        return !(dir instanceof PathFile) && delegate.isComputerNode(dir);
+    }
+
+    @Override
+    public File[] getRoots() {
+        return delegate.getRoots();
+    }
+
+    @Override
+    public File getHomeDirectory() {
+        return delegate.getHomeDirectory();
+    }
+
+    @Override
+    public File getDefaultDirectory() {
+        return delegate.getDefaultDirectory();
+    }
+
+    @Override
+    public File createFileObject(File dir, String filename) {
+        return dir instanceof PathFile ? ((PathFile) dir).resolve(filename) : delegate.createFileObject(dir, filename);
+    }
+
+    @Override
+    public File createFileObject(String path) {
+        PathFile f = find(path);
+        return f != null ? f : delegate.createFileObject(path);
+    }
+
+    @Override
+    public File[] getFiles(File dir, boolean useFileHiding) {
+        if(isArchive(dir))
+            dir = enter(dir);
+        if(!(dir instanceof PathFile))
+            return dir == null ? new File[0] : delegate.getFiles(dir, useFileHiding);
+        File[] files = dir.listFiles();
+        if(files == null)
+            return new File[0];
+        if(!useFileHiding)
+            return files;
+        List<File> shown = new ArrayList<>(files.length);
+        for(File f : files)
+            if(!f.isHidden())
+                shown.add(f);
+        return shown.toArray(new File[0]);
+    }
+
+    @Override
+    public File getParentDirectory(File dir) {
+        return dir instanceof PathFile ? dir.getParentFile() : delegate.getParentDirectory(dir);
+    }
+
+    // finds the file of a path String of a PathFile, as the chooser shows for folders chosen in a directory dialog
+    private PathFile find(String path) {
+        synchronized(opened) {
+            for(PathFile root : roots.values()) {
+                String prefix = root.getPath();
+                if(!path.startsWith(prefix))
+                    continue;
+                try {
+                    // the rest of the String is the escaped path of the file relative to the root
+                    String relative = new URI(path.substring(prefix.length()).replace(File.separatorChar, '/')).getPath();
+                    return relative.isEmpty() ? root : root.resolve(relative);
+                } catch (URISyntaxException | RuntimeException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
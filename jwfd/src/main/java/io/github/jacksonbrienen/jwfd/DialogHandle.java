@@ -0,0 +1,75 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+/**
+ * A handle to cancel a dialog shown by <code>JWindowsFileDialog</code> from another thread.<br>
+ * A handle is given to a dialog with <code>DialogOptions.setHandle</code>. Calling <code>cancel</code> closes the dialog,
+ * and the call that showed it returns null, the same as if the user had canceled it.
+ * Once canceled a handle stays canceled, a dialog shown with a canceled handle returns null without being shown.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see DialogOptions#setHandle(DialogHandle)
+ */
+public final class DialogHandle {
+
+    private boolean cancelled;
+    // closes the dialog currently shown with this handle, null if there is none
+    private Runnable closer;
+
+    /**
+     * Constructs a new <code>DialogHandle</code> that has not been canceled.
+     */
+    public DialogHandle() {}
+
+    /**
+     * Cancels the dialog shown with this handle, this may be called from any thread, and returns without waiting for the dialog to close.
+     * If no dialog is showing yet, the next dialog shown with this handle returns null without being shown.
+     */
+    public void cancel() {
+        Runnable close;
+        synchronized(this) {
+            if(cancelled)
+                return;
+            cancelled = true;
+            close = closer;
+        }
+        if(close != null)
+            close.run();
+    }
+
+    /**
+     * @return true if this handle has been canceled.
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Sets what closes the dialog shown with this handle.
+     * @param closer Closes the dialog, this is run on the thread calling <code>cancel</code>. May be null once the dialog is closed.
+     * @return true if this handle has already been canceled, in which case the closer is not kept.
+     */
+    synchronized boolean attach(Runnable closer) {
+        if(!cancelled)
+            this.closer = closer;
+        return cancelled;
+    }
+
+    /**
+     * Stops a closer from being run by <code>cancel</code>, if it is still the closer of this handle.<br>
+     * A handle shared by several dialogs only keeps the closer of the last one attached, so a dialog that closes must not
+     * clear the closer of another dialog still showing.
+     * @param closer The closer attached by the dialog that closed, compared by identity.
+     */
+    synchronized void detach(Runnable closer) {
+        if(this.closer == closer)
+            this.closer = null;
+    }
+}
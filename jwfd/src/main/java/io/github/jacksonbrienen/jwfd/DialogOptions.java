@@ -0,0 +1,227 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import java.time.Duration;
+
+/**
+ * Optional settings for a single dialog shown by <code>JWindowsFileDialog</code>.<br>
+ * Every setter returns the same <code>DialogOptions</code>, so options can be chained when they are created.
+ * A new <code>DialogOptions</code> holds the same settings the dialogs use when no options are given.<br>
+ * Some options only apply to the <code>JFileChooser</code> used on systems without the native Windows dialog,
+ * these are ignored by the native dialog, which follows the settings of Windows Explorer instead.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see JWindowsFileDialog
+ */
+public final class DialogOptions {
+
+    private boolean naturalSort;
+    private boolean prefetchAttributes;
+    private Duration timeout;
+    private DialogHandle handle;
+    private boolean browseArchives;
+    private RecentDirectories recentDirectories;
+    private String recentContext;
+    private boolean preselectFilter;
+    private boolean folderSizes;
+
+    /**
+     * Constructs a new <code>DialogOptions</code> with every option set to its default.
+     */
+    public DialogOptions() {}
+
+    /**
+     * Sets if runs of digits in file names are sorted by their numeric value, so "img2" is shown before "img10".<br>
+     * This only applies to the <code>JFileChooser</code> dialog, the native dialog always sorts this way.
+     * @param naturalSort True to sort numbers in names by value, false to sort names character by character. Defaults to false.
+     * @return this <code>DialogOptions</code>.
+     */
+    public DialogOptions setNaturalSort(boolean naturalSort) {
+        this.naturalSort = naturalSort;
+        return this;
+    }
+
+    /**
+     * @return true if runs of digits in file names are sorted by their numeric value.
+     */
+    public boolean isNaturalSort() {
+        return naturalSort;
+    }
+
+    /**
+     * Sets if the attributes of the selected files are read as soon as the dialog returns, rather than when they are first used.<br>
+     * The attributes of a multiple selection are read concurrently. This only applies to the methods of
+     * <code>JWindowsFileDialog</code> returning a <code>SelectedFile</code>.
+     * @param prefetchAttributes True to read attributes when the dialog returns, false to read them when they are first used. Defaults to false.
+     * @return this <code>DialogOptions</code>.
+     * @see SelectedFile
+     */
+    public DialogOptions setPrefetchAttributes(boolean prefetchAttributes) {
+        this.prefetchAttributes = prefetchAttributes;
+        return this;
+    }
+
+    /**
+     * @return true if the attributes of the selected files are read as soon as the dialog returns.
+     */
+    public boolean isPrefetchAttributes() {
+        return prefetchAttributes;
+    }
+
+    /**
+     * Sets how long the dialog may stay open before it is closed, as if the user had canceled it.<br>
+     * The native dialog cannot be closed by another thread, so a dialog with a timeout is always shown as a <code>JFileChooser</code>.
+     * @param timeout The longest time the dialog stays open, counted from when it is asked to be shown, or null to never time out. Defaults to null.
+     * @return this <code>DialogOptions</code>.
+     * @throws IllegalArgumentException If the timeout is zero or negative.
+     */
+    public DialogOptions setTimeout(Duration timeout) {
+        if(timeout != null && (timeout.isZero() || timeout.isNegative()))
+            throw new IllegalArgumentException("The timeout of a dialog must be positive: " + timeout);
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * @return how long the dialog may stay open, or null if it never times out.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the handle that can cancel the dialog from another thread.<br>
+     * The native dialog cannot be closed by another thread, so a dialog with a handle is always shown as a <code>JFileChooser</code>.
+     * @param handle The handle of the dialog, or null for a dialog only the user can close. Defaults to null.
+     * @return this <code>DialogOptions</code>.
+     * @see DialogHandle#cancel()
+     */
+    public DialogOptions setHandle(DialogHandle handle) {
+        this.handle = handle;
+        return this;
+    }
+
+    /**
+     * @return the handle that can cancel the dialog, or null if there is none.
+     */
+    public DialogHandle getHandle() {
+        return handle;
+    }
+
+    /**
+     * Sets if zip and jar archives can be browsed as folders, so the entries inside them can be chosen without extracting them.<br>
+     * A chosen entry is returned as a <code>Path</code> of the zip <code>FileSystem</code> of its archive, and is read
+     * straight from the archive. The archive stays open until the file system of the path is closed by the caller,
+     * every other archive opened while browsing is closed with the dialog. Only the methods returning a
+     * <code>Path</code>, <code>SelectedFile</code> or <code>PathSelection</code> can return entries of an archive,
+     * the methods returning a <code>String</code> return the <code>URI</code> of an entry instead, and close its archive
+     * with the dialog, as a <code>String</code> cannot close it. The archive is opened again from the <code>URI</code>,
+     * with <code>FileSystems.newFileSystem(URI, Map)</code>.<br>
+     * The native dialog cannot browse archives, so a dialog browsing archives is always shown as a <code>JFileChooser</code>.
+     * @param browseArchives True to browse archives as folders, false to show them as files. Defaults to false.
+     * @return this <code>DialogOptions</code>.
+     */
+    public DialogOptions setBrowseArchives(boolean browseArchives) {
+        this.browseArchives = browseArchives;
+        return this;
+    }
+
+    /**
+     * @return true if zip and jar archives can be browsed as folders.
+     */
+    public boolean isBrowseArchives() {
+        return browseArchives;
+    }
+
+    /**
+     * Sets where the directories recently used in the dialog are kept, so the dialog starts in the last directory used
+     * in its context when no starting directory is given.<br>
+     * After a selection is made, the directory it was made in, or the folder chosen in a folder dialog, is added to the
+     * context. The <code>JFileChooser</code> dialog also lists the recent directories of the context, to go back to any
+     * of them with a single click, the native dialog only starts in the most recent one.
+     * @param recentDirectories The store of recent directories, or null to not use one. Defaults to null.
+     * @param context The context of the dialog, such as "export", or null for the default context.
+     * Dialogs used for different purposes should use different contexts, so each starts where it was last used.
+     * @return this <code>DialogOptions</code>.
+     * @throws IllegalArgumentException If the context holds a line break or tab.
+     * @see RecentDirectories
+     */
+    public DialogOptions setRecentDirectories(RecentDirectories recentDirectories, String context) {
+        // checked here rather than once the dialog is closed and the directory is added
+        RecentDirectories.key(context);
+        this.recentDirectories = recentDirectories;
+        this.recentContext = context;
+        return this;
+    }
+
+    /**
+     * @return the store of recent directories of the dialog, or null if it does not use one.
+     */
+    public RecentDirectories getRecentDirectories() {
+        return recentDirectories;
+    }
+
+    /**
+     * @return the context of the dialog in its store of recent directories, null for the default context.
+     */
+    public String getRecentContext() {
+        return recentContext;
+    }
+
+    /**
+     * Sets if the dialog starts with the filter matching the most files of the directory it starts in selected, rather than its first filter.<br>
+     * The names in the directory are counted by extension when the dialog is shown, reading at most a fixed number of
+     * them, and the counts are kept until the directory is modified, so showing the dialog again in the same directory
+     * does not count it again. A filter accepting every file is never chosen this way. The native dialog always selects
+     * its first filter, so there the chosen filter is moved to the front of the list of filters.
+     * @param preselectFilter True to select the filter matching the most files, false to select the first filter. Defaults to false.
+     * @return this <code>DialogOptions</code>.
+     */
+    public DialogOptions setPreselectFilter(boolean preselectFilter) {
+        this.preselectFilter = preselectFilter;
+        return this;
+    }
+
+    /**
+     * @return true if the dialog starts with the filter matching the most files of its starting directory selected.
+     */
+    public boolean isPreselectFilter() {
+        return preselectFilter;
+    }
+
+    /**
+     * Sets if the size of folders is shown in the details view, as the total size of every file inside them.<br>
+     * Sizes are computed in the background for the folders shown, and grow as the files inside are read, followed by an
+     * ellipsis until they are complete. Folders that were read before, in any dialog, are only read again if they were
+     * modified since. This is most useful for folder dialogs, and only applies to the <code>JFileChooser</code> dialog,
+     * the native dialog is still shown where it is available.
+     * @param folderSizes True to show the size of folders, false to leave their size empty. Defaults to false.
+     * @return this <code>DialogOptions</code>.
+     */
+    public DialogOptions setFolderSizes(boolean folderSizes) {
+        this.folderSizes = folderSizes;
+        return this;
+    }
+
+    /**
+     * @return true if the size of folders is shown in the details view of the <code>JFileChooser</code> dialog.
+     */
+    public boolean isFolderSizes() {
+        return folderSizes;
+    }
+
+    /**
+     * @return true if the dialog needs something the native dialog does not support, such as being closed by something
+     * other than the user, or browsing archives.
+     */
+    boolean isChooserOnly() {
+        return timeout != null || handle != null || browseArchives;
+    }
+}
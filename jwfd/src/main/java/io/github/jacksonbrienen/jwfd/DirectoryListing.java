@@ -0,0 +1,652 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import javax.swing.filechooser.FileSystemView;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * An in memory copy of the entries of a single directory.<br>
+ * The listing is read from the file system once, and is then kept current by applying the changes reported by a
+ * <code>DirectoryWatcher</code>, so the chooser never has to list the directory again while it is open.<br>
+ * Every entry is stored in a numbered slot. The names of all slots are packed into one shared <code>char[]</code>, and
+ * their attributes are kept in primitive arrays, so a listing of a million entries costs tens of megabytes rather than
+ * a <code>File</code>, a path <code>String</code>, and a set of attributes per entry. <code>File</code> objects are only
+ * created by {@link View#file(int)} for the rows a chooser actually asks for.<br>
+ * Slots are never changed once written. A modified entry is given a new slot and its old slot is marked deleted, so a
+ * {@link View} stays valid for every slot it contains while the listing keeps changing. Once most slots are deleted,
+ * {@link #compact()} copies the live slots into a new listing, as the deleted slots are otherwise kept forever.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see ListingDirectoryModel
+ * @see DirectoryWatcher
+ */
+final class DirectoryListing {
+
+    /**
+     * The entry is a directory
+     */
+    static final byte DIRECTORY = 0x1;
+    /**
+     * The entry is hidden
+     */
+    static final byte HIDDEN = 0x2;
+    /**
+     * The entry has been deleted or replaced by a newer slot
+     */
+    static final byte DELETED = 0x4;
+
+    // a listing is only compacted once this many slots are deleted, and they are most of its slots
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    /**
+     * The attributes of a single entry, read in one pass so they can be read off the event dispatch thread and
+     * applied to the listing on it.
+     */
+    static final class Entry {
+        private final String name;
+        private final byte flags;
+        private final long size;
+        private final long modified;
+
+        private Entry(String name, byte flags, long size, long modified) {
+            this.name = name;
+            this.flags = flags;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        /**
+         * Reads the attributes of a directory entry.
+         * @param path The path of the entry.
+         * @return an <code>Entry</code> holding the attributes of the path, if the attributes cannot be read (a broken link,
+         * or a file removed while listing) the entry is treated as an empty file.
+         */
+        static Entry read(Path path) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                try {
+                    // a link whose target is gone can still be listed by its own attributes
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException ignored) {
+                    return unreadable(path);
+                }
+            }
+            return of(path, attributes);
+        }
+
+        // the entry of a path whose attributes have already been read
+        private static Entry of(Path path, BasicFileAttributes attributes) {
+            byte flags = (byte) ((isHidden(path, attributes) ? HIDDEN : 0) | (attributes.isDirectory() ? DIRECTORY : 0));
+            return new Entry(path.getFileName().toString(), flags, attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+
+        // an entry whose attributes cannot be read, treated as an empty file
+        private static Entry unreadable(Path path) {
+            return new Entry(path.getFileName().toString(), isHidden(path, null) ? HIDDEN : 0, 0L, 0L);
+        }
+
+        // the attributes of the windows file system are dos attributes, which already hold the hidden flag,
+        // elsewhere Files.isHidden only reads the name for the default file system
+        private static boolean isHidden(Path path, BasicFileAttributes attributes) {
+            if(attributes instanceof DosFileAttributes)
+                return ((DosFileAttributes) attributes).isHidden();
+            try {
+                return Files.isHidden(path);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * @return the name of the entry.
+         */
+        String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * A read only view of the slots of a listing at one point in time. Views can be read from any thread without locking,
+     * as the slots they contain are never written again.
+     */
+    static final class View {
+        private final DirectoryListing listing;
+        private final File directory;
+        private final char[] chars;
+        private final int[] nameStart;
+        private final int[] nameEnd;
+        private final long[] sizes;
+        private final long[] modified;
+        private final byte[] flags;
+        private final File[] foreign;
+        private final int count;
+
+        private View(DirectoryListing listing) {
+            this.listing = listing;
+            directory = listing.directory;
+            chars = listing.chars;
+            nameStart = listing.nameStart;
+            nameEnd = listing.nameEnd;
+            sizes = listing.sizes;
+            modified = listing.modified;
+            flags = listing.flags;
+            foreign = listing.foreign;
+            count = listing.count;
+        }
+
+        /**
+         * @return the listing this is a view of.
+         */
+        DirectoryListing getListing() {
+            return listing;
+        }
+
+        /**
+         * @param listing A listing.
+         * @return true if this is a view of the given listing, and so numbers its slots the same way.
+         */
+        boolean isOf(DirectoryListing listing) {
+            return this.listing == listing;
+        }
+
+        /**
+         * @return the directory the listing is of.
+         */
+        File getDirectory() {
+            return directory;
+        }
+
+        /**
+         * @return true if the listing was read through a <code>FileSystemView</code>, and keeps a <code>File</code> for every slot.
+         */
+        boolean isForeign() {
+            return foreign != null;
+        }
+
+        /**
+         * @return the number of slots in this view, including deleted slots.
+         */
+        int getCount() {
+            return count;
+        }
+
+        /**
+         * @param slot A slot of this view.
+         * @return a new <code>File</code> for the slot, or the <code>File</code> it was listed from for listings read
+         * through a <code>FileSystemView</code>.
+         */
+        File file(int slot) {
+            if(foreign != null)
+                return foreign[slot];
+            return new ListedFile(directory, this, slot);
+        }
+
+        /**
+         * @param slot A slot of this view.
+         * @return the name of the entry in the slot.
+         */
+        String name(int slot) {
+            return new String(chars, nameStart[slot], nameEnd[slot] - nameStart[slot]);
+        }
+
+        /**
+         * @param slot A slot of this view.
+         * @param name A name.
+         * @return true if the slot has the given name.
+         */
+        boolean nameEquals(int slot, String name) {
+            int start = nameStart[slot];
+            if(nameEnd[slot] - start != name.length())
+                return false;
+            for(int i = 0; i < name.length(); i++)
+                if(chars[start + i] != name.charAt(i))
+                    return false;
+            return true;
+        }
+
+        byte flags(int slot) {
+            return flags[slot];
+        }
+
+        boolean isDeleted(int slot) {
+            return (flags[slot] & DELETED) != 0;
+        }
+
+        boolean isDirectory(int slot) {
+            return (flags[slot] & DIRECTORY) != 0;
+        }
+
+        boolean isHidden(int slot) {
+            return (flags[slot] & HIDDEN) != 0;
+        }
+
+        long size(int slot) {
+            return sizes[slot];
+        }
+
+        long lastModified(int slot) {
+            return modified[slot];
+        }
+
+        /**
+         * Compares the names of two slots the way <code>String.compareToIgnoreCase</code> would, falling back to a case
+         * sensitive comparison for names that only differ in case, without creating either name.
+         * @param a The first slot.
+         * @param b The second slot.
+         * @return a negative number, zero, or a positive number as the name of a is less than, equal to, or greater than b.
+         */
+        int compareNames(int a, int b) {
+            int startA = nameStart[a], lengthA = nameEnd[a] - startA;
+            int startB = nameStart[b], lengthB = nameEnd[b] - startB;
+            int length = Math.min(lengthA, lengthB);
+            int caseDiff = 0;
+            for(int i = 0; i < length; i++) {
+                char ca = chars[startA + i];
+                char cb = chars[startB + i];
+                if(ca == cb)
+                    continue;
+                if(caseDiff == 0)
+                    caseDiff = ca - cb;
+                ca = Character.toUpperCase(ca);
+                cb = Character.toUpperCase(cb);
+                if(ca != cb) {
+                    ca = Character.toLowerCase(ca);
+                    cb = Character.toLowerCase(cb);
+                    if(ca != cb)
+                        return ca - cb;
+                }
+            }
+            return lengthA != lengthB ? lengthA - lengthB : caseDiff;
+        }
+
+        /**
+         * Compares the name of a slot to a prefix, ignoring case, in the same order as <code>compareNames</code>. The names
+         * starting with a prefix are therefore always next to each other when sorted by <code>compareNames</code>.
+         * @param slot A slot of this view.
+         * @param prefix The prefix to compare to.
+         * @return zero if the name starts with the prefix, otherwise a negative number or a positive number as the name
+         * is sorted before or after every name starting with the prefix.
+         */
+        int compareToPrefix(int slot, String prefix) {
+            int start = nameStart[slot];
+            int length = Math.min(nameEnd[slot] - start, prefix.length());
+            for(int i = 0; i < length; i++) {
+                char c = chars[start + i];
+                char p = prefix.charAt(i);
+                if(c == p)
+                    continue;
+                c = Character.toUpperCase(c);
+                p = Character.toUpperCase(p);
+                if(c != p) {
+                    c = Character.toLowerCase(c);
+                    p = Character.toLowerCase(p);
+                    if(c != p)
+                        return c - p;
+                }
+            }
+            return length < prefix.length() ? -1 : 0;
+        }
+
+        /**
+         * @param slot A slot of this view.
+         * @param suffix The suffix to test for.
+         * @return true if the name of the slot ends with the suffix, ignoring case.
+         */
+        boolean nameEndsWith(int slot, String suffix) {
+            int length = suffix.length();
+            int start = nameEnd[slot] - length;
+            if(start < nameStart[slot])
+                return false;
+            for(int i = 0; i < length; i++) {
+                char c = chars[start + i];
+                char s = suffix.charAt(i);
+                if(c != s && Character.toUpperCase(c) != Character.toUpperCase(s)
+                        && Character.toLowerCase(c) != Character.toLowerCase(s))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private final File directory;
+    private final Path path;
+
+    // guarded by this, the arrays are replaced rather than written to when they grow so views of them stay valid
+    private char[] chars = new char[1024];
+    private int charCount;
+    private int[] nameStart = new int[64];
+    private int[] nameEnd = new int[64];
+    private long[] sizes = new long[64];
+    private long[] modified = new long[64];
+    private byte[] flags = new byte[64];
+    // true once a view holds the flags array, which is then copied before a slot it holds is marked deleted
+    private boolean flagsShared;
+    private File[] foreign;
+    private int count;
+    private int deleted;
+    // open addressing table from the hash of a name to its newest slot plus one, zero marks an empty bucket
+    private int[] table = new int[128];
+    private int distinct;
+    private int modCount;
+
+    private DirectoryListing(File directory, Path path) {
+        this.directory = directory;
+        this.path = path;
+    }
+
+    /**
+     * Finds the path of a directory, if it can be listed through <code>java.nio.file</code>.
+     * @param fsv The <code>FileSystemView</code> of the chooser the listing is for.
+     * @param directory The directory to find the path of.
+     * @return the path of the directory, or null for directories that are not part of the file system,
+     * such as the virtual folders of the Windows shell.
+     */
+    static Path toPath(FileSystemView fsv, File directory) {
+        try {
+            return fsv.isFileSystem(directory) ? directory.toPath() : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lists a directory, reading the attributes of every entry in the same pass.<br>
+     * The attributes are taken from the records the directory is read in where the file system provides them, as
+     * Windows does for every attribute kept by a listing, so listing such a directory costs no call per entry. Elsewhere
+     * every entry is read with a single call, which returns its size and date along with its type.<br>
+     * Directories without a path, or that cannot be read through <code>java.nio.file</code>, are listed through the
+     * <code>FileSystemView</code> instead, these listings have no path, cannot be watched, and keep the <code>File</code>
+     * objects returned by the <code>FileSystemView</code>.
+     * @param fsv The <code>FileSystemView</code> of the chooser the listing is for.
+     * @param directory The directory to list.
+     * @param path The path of the directory as returned by {@link #toPath(FileSystemView, File)}, may be null.
+     * @return a <code>DirectoryListing</code> containing every entry of the directory, hidden or not.
+     * @throws InterruptedException If the listing thread is interrupted while listing.
+     */
+    static DirectoryListing load(FileSystemView fsv, File directory, Path path) throws InterruptedException {
+        if(path != null) {
+            DirectoryListing listing = new DirectoryListing(directory, path);
+            // walking a single level hands over the attributes read with the entries, which a DirectoryStream does not
+            FileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if(Thread.interrupted())
+                        throw new InterruptedIOException();
+                    listing.put(Entry.of(file, attributes));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                    // the directory itself failing to open is reported here as well
+                    if(file.equals(path))
+                        throw e;
+                    if(Thread.interrupted())
+                        throw new InterruptedIOException();
+                    listing.put(Entry.unreadable(file));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    if(e != null)
+                        throw e;
+                    return FileVisitResult.CONTINUE;
+                }
+            };
+            try {
+                Files.walkFileTree(path, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, visitor);
+                listing.trim();
+                return listing;
+            } catch (InterruptedIOException e) {
+                throw new InterruptedException();
+            } catch (IOException | SecurityException e) {
+                // fall through to the FileSystemView, which reports an unreadable directory as empty
+            }
+        }
+
+        File[] files = fsv.getFiles(directory, false);
+        if(Thread.interrupted())
+            throw new InterruptedException();
+        DirectoryListing listing = new DirectoryListing(directory, null);
+        listing.foreign = new File[listing.flags.length];
+        for(File file : files) {
+            byte flags = (byte) ((file.isDirectory() ? DIRECTORY : 0) | (file.isHidden() ? HIDDEN : 0));
+            int slot = listing.put(new Entry(file.getName(), flags, file.length(), file.lastModified()));
+            listing.foreign[slot] = file;
+        }
+        listing.trim();
+        return listing;
+    }
+
+    /**
+     * @return the directory this listing is of.
+     */
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the path of the listed directory, or null if the directory is not part of a file system that can be watched.
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return a view of every slot currently in the listing.
+     */
+    synchronized View view() {
+        flagsShared = true;
+        return new View(this);
+    }
+
+    /**
+     * @param name The name of an entry.
+     * @return the slot of the entry with the given name, or -1 if there is none.
+     */
+    synchronized int find(String name) {
+        int slot = table[bucket(name)] - 1;
+        return slot >= 0 && (flags[slot] & DELETED) == 0 ? slot : -1;
+    }
+
+    /**
+     * Adds an entry to the listing in a new slot, marking the slot of any entry of the same name as deleted.
+     * @param entry The entry to add.
+     * @return the slot of the added entry.
+     */
+    synchronized int put(Entry entry) {
+        int bucket = bucket(entry.name);
+        int old = table[bucket] - 1;
+        int start, end;
+        if(old >= 0) {
+            // the name is already stored, the new slot shares it
+            markDeleted(old);
+            start = nameStart[old];
+            end = nameEnd[old];
+        } else {
+            start = charCount;
+            end = start + entry.name.length();
+            if(end > chars.length)
+                chars = Arrays.copyOf(chars, Math.max(end, Math.max(1024, chars.length * 2)));
+            entry.name.getChars(0, entry.name.length(), chars, start);
+            charCount = end;
+            distinct++;
+        }
+
+        if(count == flags.length)
+            grow();
+        int slot = count++;
+        nameStart[slot] = start;
+        nameEnd[slot] = end;
+        sizes[slot] = entry.size;
+        modified[slot] = entry.modified;
+        flags[slot] = entry.flags;
+        table[bucket] = slot + 1;
+        modCount++;
+
+        if(distinct * 2 > table.length)
+            rehash();
+        return slot;
+    }
+
+    /**
+     * Marks the entry of the given name as deleted.
+     * @param name The name of the entry to remove.
+     * @return the slot of the removed entry, or -1 if there was no entry with the given name.
+     */
+    synchronized int remove(String name) {
+        int slot = find(name);
+        if(slot >= 0) {
+            markDeleted(slot);
+            modCount++;
+        }
+        return slot;
+    }
+
+    /**
+     * @return the names of every entry that has not been deleted, in no particular order.
+     */
+    synchronized List<String> names() {
+        View view = new View(this);
+        List<String> names = new ArrayList<>(count);
+        for(int slot = 0; slot < count; slot++)
+            if(!view.isDeleted(slot))
+                names.add(view.name(slot));
+        return names;
+    }
+
+    /**
+     * @return true if most slots of the listing are deleted, and it should be replaced by {@link #compact()}.
+     */
+    synchronized boolean needsCompacting() {
+        return deleted >= COMPACT_THRESHOLD && deleted > count - deleted;
+    }
+
+    /**
+     * Copies the entries that have not been deleted into a new listing of the same directory.<br>
+     * The slots of the new listing are numbered from zero again, so views of this listing do not apply to it.
+     * @return a new listing holding only the live slots of this listing, in the same order.
+     */
+    synchronized DirectoryListing compact() {
+        DirectoryListing compacted = new DirectoryListing(directory, path);
+        if(foreign != null)
+            compacted.foreign = new File[compacted.flags.length];
+        View view = new View(this);
+        for(int slot = 0; slot < count; slot++) {
+            if(view.isDeleted(slot))
+                continue;
+            int copy = compacted.put(new Entry(view.name(slot), flags[slot], sizes[slot], modified[slot]));
+            if(foreign != null)
+                compacted.foreign[copy] = foreign[slot];
+        }
+        compacted.trim();
+        return compacted;
+    }
+
+    /**
+     * @return a counter that changes every time an entry is added, replaced, or removed.
+     */
+    synchronized int getModCount() {
+        return modCount;
+    }
+
+    // marks a slot deleted without changing the flags seen by the views already taken
+    private void markDeleted(int slot) {
+        // a removed name that is added again still has its deleted slot in the table
+        if((flags[slot] & DELETED) != 0)
+            return;
+        if(flagsShared) {
+            flags = flags.clone();
+            flagsShared = false;
+        }
+        flags[slot] |= DELETED;
+        deleted++;
+    }
+
+    // finds the bucket holding a name, or the empty bucket it would be stored in
+    private int bucket(String name) {
+        int mask = table.length - 1;
+        int bucket = mix(name.hashCode()) & mask;
+        while(table[bucket] != 0 && !nameEquals(table[bucket] - 1, name))
+            bucket = (bucket + 1) & mask;
+        return bucket;
+    }
+
+    private boolean nameEquals(int slot, String name) {
+        int start = nameStart[slot];
+        if(nameEnd[slot] - start != name.length())
+            return false;
+        for(int i = 0; i < name.length(); i++)
+            if(chars[start + i] != name.charAt(i))
+                return false;
+        return true;
+    }
+
+    // hashes the stored name of a slot the same way String.hashCode does, so buckets can be found again when rehashing
+    private int hash(int slot) {
+        int h = 0;
+        for(int i = nameStart[slot]; i < nameEnd[slot]; i++)
+            h = 31 * h + chars[i];
+        return mix(h);
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    // releases the space left over from growing while listing, most listings are never added to afterwards
+    private synchronized void trim() {
+        chars = Arrays.copyOf(chars, charCount);
+        nameStart = Arrays.copyOf(nameStart, count);
+        nameEnd = Arrays.copyOf(nameEnd, count);
+        sizes = Arrays.copyOf(sizes, count);
+        modified = Arrays.copyOf(modified, count);
+        flags = Arrays.copyOf(flags, count);
+        flagsShared = false;
+        if(foreign != null)
+            foreign = Arrays.copyOf(foreign, count);
+    }
+
+    private void grow() {
+        int capacity = Math.max(64, flags.length * 2);
+        nameStart = Arrays.copyOf(nameStart, capacity);
+        nameEnd = Arrays.copyOf(nameEnd, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        modified = Arrays.copyOf(modified, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        flagsShared = false;
+        if(foreign != null)
+            foreign = Arrays.copyOf(foreign, capacity);
+    }
+
+    // rebuilds the table at twice the size, keeping only the newest slot of every name
+    private void rehash() {
+        int[] old = table;
+        table = new int[old.length * 2];
+        int mask = table.length - 1;
+        for(int value : old) {
+            if(value == 0)
+                continue;
+            int bucket = hash(value - 1) & mask;
+            while(table[bucket] != 0)
+                bucket = (bucket + 1) & mask;
+            table[bucket] = value;
+        }
+    }
+}
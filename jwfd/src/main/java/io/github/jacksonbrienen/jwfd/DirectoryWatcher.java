@@ -0,0 +1,272 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import javax.swing.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches a single directory for entries being created, deleted, or modified, and reports them in short batches on the
+ * event dispatch thread.<br>
+ * A <code>WatchService</code> is used where the file system supports one, otherwise the directory is polled, comparing
+ * the entry names whenever the modification time of the directory changes. Polling cannot see an existing file being
+ * modified, only entries being created or deleted.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see DirectoryListing
+ */
+final class DirectoryWatcher implements Closeable {
+
+    // how long events are collected after the first one of a batch, so bursts of changes reach the chooser together
+    private static final long BATCH_DELAY = 150;
+    // how often a directory without native watch support is checked for changes
+    private static final long POLL_INTERVAL = 2000;
+    // how many polls in a row may fail, such as on a network drive that dropped for a moment, before polling stops
+    private static final int POLL_FAILURES = 5;
+
+    /**
+     * A change to a single entry of the watched directory.
+     */
+    static final class Change {
+        private final String name;
+        private final DirectoryListing.Entry entry;
+
+        private Change(String name, DirectoryListing.Entry entry) {
+            this.name = name;
+            this.entry = entry;
+        }
+
+        /**
+         * @return the name of the changed entry.
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return the attributes of the entry as it is now, or null if it was deleted.
+         */
+        DirectoryListing.Entry getEntry() {
+            return entry;
+        }
+    }
+
+    /**
+     * A set of changes collected over one batch, in the order the entries were first reported.
+     */
+    static final class Batch {
+        private final List<Change> changes;
+        private final boolean overflow;
+
+        private Batch(List<Change> changes, boolean overflow) {
+            this.changes = changes;
+            this.overflow = overflow;
+        }
+
+        /**
+         * @return the changes of this batch, each entry appears at most once.
+         */
+        List<Change> getChanges() {
+            return changes;
+        }
+
+        /**
+         * @return true if changes were lost, in which case the directory must be listed again.
+         */
+        boolean isOverflow() {
+            return overflow;
+        }
+    }
+
+    private final Path path;
+    private final WatchService service;
+    private final Set<String> pending = new LinkedHashSet<>();
+    private boolean overflow;
+    private long deadline;
+    private volatile boolean closed;
+    private Consumer<Batch> listener;
+    private Thread thread;
+
+    private DirectoryWatcher(Path path, WatchService service) {
+        this.path = path;
+        this.service = service;
+    }
+
+    /**
+     * Registers a directory to be watched. Events that happen between registering and <code>start</code> are kept,
+     * so a directory can be registered before it is listed without missing changes made while listing.
+     * @param path The path of the directory to watch.
+     * @return a <code>DirectoryWatcher</code> that uses a <code>WatchService</code> if the directory supports it, and polling if not.
+     */
+    static DirectoryWatcher register(Path path) {
+        WatchService service = null;
+        try {
+            service = path.getFileSystem().newWatchService();
+            path.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            return new DirectoryWatcher(path, service);
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            // the file system cannot watch this directory, or the watch limit of the system has been reached
+            if(service != null)
+                try {
+                    service.close();
+                } catch (IOException ignored) {}
+            return new DirectoryWatcher(path, null);
+        }
+    }
+
+    /**
+     * @return true if this watcher polls the directory rather than receiving events from the file system.
+     */
+    boolean isPolling() {
+        return service == null;
+    }
+
+    /**
+     * Starts delivering changes.
+     * @param names The names of the entries in the directory when it was listed, used as the starting point for polling.
+     * @param listener Receives each batch of changes, this is always called on the event dispatch thread.
+     */
+    synchronized void start(Collection<String> names, Consumer<Batch> listener) {
+        if(closed || thread != null)
+            return;
+        this.listener = listener;
+        if(isPolling()) {
+            Set<String> known = new HashSet<>(names);
+            thread = new Thread(() -> poll(known), "JWFD Directory Polling Thread");
+        } else {
+            thread = new Thread(this::watch, "JWFD Directory Watching Thread");
+        }
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        if(closed)
+            return;
+        closed = true;
+        if(service != null)
+            try {
+                service.close();
+            } catch (IOException ignored) {}
+        if(thread != null)
+            thread.interrupt();
+    }
+
+    // receives events from the WatchService until the watcher is closed or the directory becomes inaccessible
+    private void watch() {
+        try {
+            while(!closed) {
+                WatchKey key;
+                if(pending.isEmpty() && !overflow)
+                    key = service.take();
+                else
+                    key = service.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+
+                if(key != null) {
+                    for(WatchEvent<?> event : key.pollEvents()) {
+                        if(event.kind() == OVERFLOW)
+                            queue(null);
+                        else
+                            queue(((Path) event.context()).getFileName().toString());
+                    }
+                    if(!key.reset()) {
+                        // the directory was deleted or is no longer accessible, report what is left and stop
+                        flush();
+                        return;
+                    }
+                }
+
+                if(System.currentTimeMillis() >= deadline)
+                    flush();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {}
+    }
+
+    // compares the names in the directory each time its modification time changes, a poll that fails is tried again
+    // at the next interval, polling only stops once the directory is gone or polls keep failing
+    private void poll(Set<String> known) {
+        FileTime modified = null;
+        int failures = 0;
+        try {
+            while(!closed) {
+                Thread.sleep(POLL_INTERVAL);
+                Set<String> names = new HashSet<>();
+                try {
+                    FileTime current = Files.getLastModifiedTime(path);
+                    if(current.equals(modified))
+                        continue;
+                    try(DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+                        for(Path entry : stream)
+                            names.add(entry.getFileName().toString());
+                    }
+                    // only a directory listed in full is taken as seen, so a failed poll is compared again
+                    modified = current;
+                    failures = 0;
+                } catch (NoSuchFileException | NotDirectoryException e) {
+                    return;
+                } catch (IOException | DirectoryIteratorException | SecurityException e) {
+                    if(++failures >= POLL_FAILURES)
+                        return;
+                    continue;
+                }
+                for(String name : names)
+                    if(!known.contains(name))
+                        queue(name);
+                for(String name : known)
+                    if(!names.contains(name))
+                        queue(name);
+                known = names;
+                flush();
+            }
+        } catch (InterruptedException ignored) {}
+    }
+
+    // adds an entry name to the current batch, null marks the batch as overflowed
+    private void queue(String name) {
+        if(pending.isEmpty() && !overflow)
+            deadline = System.currentTimeMillis() + BATCH_DELAY;
+        if(name == null)
+            overflow = true;
+        else
+            pending.add(name);
+    }
+
+    // reads the current state of every pending entry and hands the batch to the event dispatch thread
+    private void flush() {
+        if(pending.isEmpty() && !overflow)
+            return;
+        List<Change> changes = new ArrayList<>(pending.size());
+        if(!overflow)
+            for(String name : pending) {
+                Path entry = path.resolve(name);
+                if(Files.exists(entry, LinkOption.NOFOLLOW_LINKS))
+                    changes.add(new Change(name, DirectoryListing.Entry.read(entry)));
+                else
+                    changes.add(new Change(name, null));
+            }
+        Batch batch = new Batch(Collections.unmodifiableList(changes), overflow);
+        pending.clear();
+        overflow = false;
+
+        Consumer<Batch> listener = this.listener;
+        SwingUtilities.invokeLater(() -> {
+            if(!closed)
+                listener.accept(batch);
+        });
+    }
+}
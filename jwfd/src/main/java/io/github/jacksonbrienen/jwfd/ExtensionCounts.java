@@ -0,0 +1,150 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How many files of a directory end with each extension, used to preselect the filter of a dialog that matches the
+ * most files of the directory it starts in.<br>
+ * A directory is counted in a single pass over its names, reading no attributes, and stops after a fixed number of
+ * entries, so a huge directory costs no more than a large one. Every dotted suffix of a name is counted, so
+ * "notes.tar.gz" counts for both ".tar.gz" and ".gz". The counts of the most recently used directories are kept along
+ * with the modification time of the directory, and are only counted again once the directory is modified.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see DialogOptions#setPreselectFilter(boolean)
+ */
+final class ExtensionCounts {
+
+    // the most entries counted in a directory, the rest of a larger directory is assumed to be like its first entries
+    private static final int ENTRY_LIMIT = 10_000;
+    // how many directories have their counts kept
+    private static final int CACHE_SIZE = 64;
+
+    // the counts of the most recently used directories, least recently used first, guarded by itself
+    private static final Map<Path, ExtensionCounts> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final FileTime modified;
+    // the number of names ending with each lower case suffix, starting with its dot
+    private final Map<String, Integer> counts;
+
+    private ExtensionCounts(FileTime modified, Map<String, Integer> counts) {
+        this.modified = modified;
+        this.counts = counts;
+    }
+
+    /**
+     * Finds the filter matching the most files of a directory. Filters accepting every file are never chosen, as
+     * they always match the most files, and the earlier of two filters matching as many files is chosen.
+     * @param directory The directory a dialog starts in.
+     * @param filters The filters of the dialog.
+     * @return the filter matching the most files, or null if the directory cannot be read or no filter matches any file in it.
+     */
+    static FileExtension choose(Path directory, FileExtension... filters) {
+        if(directory == null || filters == null || filters.length < 2)
+            return null;
+        ExtensionCounts counts = of(directory);
+        if(counts == null)
+            return null;
+        FileExtension chosen = null;
+        int most = 0;
+        for(FileExtension filter : filters) {
+            int count = counts.count(filter);
+            if(count > most) {
+                chosen = filter;
+                most = count;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Moves the filter matching the most files of a directory to the front, for dialogs that always select their first filter.
+     * @param directory The directory a dialog starts in, may be null.
+     * @param filters The filters of the dialog.
+     * @return the filters with the filter matching the most files first, or the filters as they are if none is found.
+     */
+    static FileExtension[] moveToFront(Path directory, FileExtension... filters) {
+        FileExtension chosen = choose(directory, filters);
+        if(chosen == null || chosen == filters[0])
+            return filters;
+        FileExtension[] ordered = new FileExtension[filters.length];
+        ordered[0] = chosen;
+        int i = 1;
+        for(FileExtension filter : filters)
+            if(filter != chosen)
+                ordered[i++] = filter;
+        return ordered;
+    }
+
+    // the counts of a directory, counted again only if it was modified since it was last counted
+    private static ExtensionCounts of(Path directory) {
+        Path key = directory.toAbsolutePath();
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(key);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+        synchronized(CACHE) {
+            ExtensionCounts cached = CACHE.get(key);
+            if(cached != null && cached.modified.equals(modified))
+                return cached;
+        }
+        ExtensionCounts counted = count(key, modified);
+        if(counted != null) {
+            synchronized(CACHE) {
+                CACHE.put(key, counted);
+                if(CACHE.size() > CACHE_SIZE)
+                    CACHE.remove(CACHE.keySet().iterator().next());
+            }
+        }
+        return counted;
+    }
+
+    private static ExtensionCounts count(Path directory, FileTime modified) {
+        Map<String, Integer> counts = new HashMap<>();
+        int entries = 0;
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for(Path entry : stream) {
+                if(++entries > ENTRY_LIMIT)
+                    break;
+                Path fileName = entry.getFileName();
+                if(fileName == null)
+                    continue;
+                // folders with a dot in their name are counted too, as telling them apart would read the attributes of every entry
+                String name = fileName.toString().toLowerCase();
+                for(int dot = name.indexOf('.', 1); dot >= 0; dot = name.indexOf('.', dot + 1))
+                    counts.merge(name.substring(dot), 1, Integer::sum);
+            }
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+        return new ExtensionCounts(modified, counts);
+    }
+
+    // the number of names matching a filter, or zero for a filter accepting every file
+    private int count(FileExtension filter) {
+        int count = 0;
+        for(String extension : filter.getExtensions()) {
+            if(extension.isEmpty())
+                return 0;
+            count += counts.getOrDefault(extension.toLowerCase(), 0);
+        }
+        return count;
+    }
+}
@@ -25,6 +25,7 @@ public final class FileExtension extends FileFilter {
     public static final FileExtension ALL = new FileExtension();
 
     private final String[] extensions;
+    private final String[] mimeTypes;
     private final String windowsFilter;
     private final String description;
 
@@ -33,6 +34,7 @@ public final class FileExtension extends FileFilter {
      */
     private FileExtension() {
         extensions = new String[]{""};
+        mimeTypes = new String[0];
         windowsFilter = "All" + "\0" + "*.*";
         description = "All (*.*)";
     }
@@ -48,6 +50,18 @@ public final class FileExtension extends FileFilter {
      * @see JWindowsFileDialog
      */
     public FileExtension(String description, String... extensions) throws IllegalArgumentException {
+        this(description, extensions, new String[0]);
+    }
+
+    /**
+     * Internal constructor used by <code>FileTypeCatalog</code> to make the extensions of well known file types.
+     * @param description A basic user-friendly description of what the extension is.
+     * @param extensions An array of Strings representing the extensions used by this file extension.
+     * @param mimeTypes The MIME types of the file type, the preferred MIME type first.
+     * @throws IllegalArgumentException If the description or extensions parameters are null, or if the extensions array has a size of 0.
+     * @see FileTypeCatalog
+     */
+    FileExtension(String description, String[] extensions, String[] mimeTypes) throws IllegalArgumentException {
         if(description == null)
             throw new IllegalArgumentException("The description cannot be null");
         if(extensions == null)
@@ -56,11 +70,44 @@ public final class FileExtension extends FileFilter {
             throw new IllegalArgumentException("The extensions array must have a minimum length of 1");
 
         this.extensions = addExtensionIdentifier(extensions);
-        String winExtensions = arrayToWindowsFilter(extensions);
+        this.mimeTypes = mimeTypes;
+        String winExtensions = arrayToWindowsFilter(this.extensions);
         windowsFilter = description + "\0" + winExtensions;
         this.description = description + " (" + winExtensions + ")";
     }
 
+    /**
+     * Finds the <code>FileExtension</code> of a well known file type by one of its extensions.<br>
+     * The catalog of well known file types is loaded the first time it is used. The same <code>FileExtension</code>
+     * is returned for every extension and MIME type of a file type, so catalog extensions can be compared by reference.
+     * @param extension An extension such as "png", with or without the leading dot, in any case.
+     * @return the <code>FileExtension</code> of the file type using the extension, or null if the extension is not in the catalog.
+     * @see #forMimeType(String)
+     */
+    public static FileExtension forExtension(String extension) {
+        return extension == null ? null : FileTypeCatalog.forExtension(extension);
+    }
+
+    /**
+     * Finds the <code>FileExtension</code> of a well known file type by one of its MIME types.<br>
+     * The catalog of well known file types is loaded the first time it is used. The same <code>FileExtension</code>
+     * is returned for every extension and MIME type of a file type, so catalog extensions can be compared by reference.
+     * @param mimeType A MIME type such as "image/png", parameters such as "; charset=UTF-8" are ignored.
+     * @return the <code>FileExtension</code> of the file type using the MIME type, or null if the MIME type is not in the catalog.
+     * @see #forExtension(String)
+     */
+    public static FileExtension forMimeType(String mimeType) {
+        return mimeType == null ? null : FileTypeCatalog.forMimeType(mimeType);
+    }
+
+    /**
+     * @return a copy of the MIME types of this file type with the preferred MIME type first,
+     * this is empty for extensions that are not from the catalog of well known file types.
+     */
+    public String[] getMimeTypes() {
+        return mimeTypes.clone();
+    }
+
     /**
      * The Windows Filter which should be passed to the <code>WindowsFileDialog</code> when creating a native dialog.
      * @return a String representing a cstring array of length 2
@@ -87,6 +134,22 @@ public final class FileExtension extends FileFilter {
         return false;
     }
 
+    /**
+     * Tests a listed entry against this extension without creating a <code>File</code> for it.
+     * @param view A view of the listing the entry belongs to.
+     * @param slot The slot of the entry.
+     * @return true if the entry would be accepted by {@link #accept(File)}.
+     * @see DirectoryListing
+     */
+    boolean accept(DirectoryListing.View view, int slot) {
+        if(view.isDirectory(slot))
+            return true;
+        for(String extension: extensions)
+            if(view.nameEndsWith(slot, extension))
+                return true;
+        return false;
+    }
+
     @Override
     public String getDescription() {
         return description;
@@ -97,11 +160,13 @@ public final class FileExtension extends FileFilter {
         return description;
     }
 
-    // used to append a . at the front of all extensions in an extension array
+    // used to append a . at the front of all extensions in an extension array,
+    // the array is copied so the array passed by the caller is left as it was
     private static String[] addExtensionIdentifier(String[] extensions) {
+        String[] identified = new String[extensions.length];
         for(int i = 0; i < extensions.length; i++)
-            extensions[i] = "." + extensions[i];
-        return extensions;
+            identified[i] = "." + extensions[i];
+        return identified;
     }
 
     // turns an array of extensions to a single String in the windows format
@@ -0,0 +1,85 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The catalog of well known file types behind <code>FileExtension.forExtension</code> and <code>FileExtension.forMimeType</code>.<br>
+ * The catalog is read from the <code>file-types.tsv</code> resource when this class is first used, and holds a single
+ * <code>FileExtension</code> for every file type, shared by all of its extensions and MIME types.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see FileExtension
+ */
+final class FileTypeCatalog {
+
+    private static final String RESOURCE = "/io/github/jacksonbrienen/jwfd/file-types.tsv";
+
+    private static final Map<String, FileExtension> BY_EXTENSION = new HashMap<>();
+    private static final Map<String, FileExtension> BY_MIME_TYPE = new HashMap<>();
+
+    static {
+        // the class is only initialized by the first lookup, which is what loads the catalog lazily
+        try(InputStream in = FileTypeCatalog.class.getResourceAsStream(RESOURCE)) {
+            if(in != null)
+                read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        } catch (IOException ignored) {
+            // a catalog that cannot be read is left empty, lookups then find nothing
+        }
+    }
+
+    // disable default constructor
+    private FileTypeCatalog() {}
+
+    /**
+     * @param extension An extension, with or without the leading dot, in any case.
+     * @return the catalog <code>FileExtension</code> using the extension, or null if there is none.
+     */
+    static FileExtension forExtension(String extension) {
+        String key = extension.startsWith(".") ? extension.substring(1) : extension;
+        return BY_EXTENSION.get(key.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param mimeType A MIME type, parameters following a semicolon are ignored.
+     * @return the catalog <code>FileExtension</code> using the MIME type, or null if there is none.
+     */
+    static FileExtension forMimeType(String mimeType) {
+        int parameters = mimeType.indexOf(';');
+        String key = parameters < 0 ? mimeType : mimeType.substring(0, parameters);
+        return BY_MIME_TYPE.get(key.trim().toLowerCase(Locale.ROOT));
+    }
+
+    // reads one file type per line: the description, its extensions, and its MIME types, separated by tabs
+    private static void read(BufferedReader reader) throws IOException {
+        String line;
+        while((line = reader.readLine()) != null) {
+            if(line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] columns = line.split("\t");
+            if(columns.length < 2)
+                continue;
+            String[] extensions = columns[1].split(" ");
+            String[] mimeTypes = columns.length > 2 ? columns[2].split(" ") : new String[0];
+            FileExtension type = new FileExtension(columns[0], extensions, mimeTypes);
+            for(String extension : extensions)
+                BY_EXTENSION.putIfAbsent(extension, type);
+            for(String mimeType : mimeTypes)
+                BY_MIME_TYPE.putIfAbsent(mimeType, type);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The total size of the files inside folders shown by a <code>JFileDialog</code>, computed in the background and
+ * shown as it grows.<br>
+ * A folder is walked as a fork-join task per sub folder, so the sub folders of a folder are read in parallel. Links
+ * are never followed. Every folder read has the total size of its own files, and its sub folders, kept along with its
+ * modification time, for every dialog, so walking a folder again only reads the folders that were modified, and
+ * checks the modification time of the rest. The folders kept are limited, dropping the least recently used first.
+ * A file modified in place does not modify its folder, so its new size is not noticed until a file of the folder is
+ * added, removed, or renamed.<br>
+ * Only the folders painted are walked, and the walks of folders that are no longer shown are cancelled.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ */
+final class FolderSizes {
+
+    // the walks are bound by reading the disk rather than by the processor, so only a few run at once
+    private static final int PARALLELISM = 4;
+    // the most folders kept, the least recently used are dropped beyond this
+    private static final int FOLDER_LIMIT = 100_000;
+    // how often the chooser is repainted while a walk is adding to the size of a folder
+    private static final long REPAINT_INTERVAL = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private static final ForkJoinPool WALKERS = new ForkJoinPool(PARALLELISM, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("JWFD Folder Size Thread");
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+    // the folders read most recently, of the default file system only as other file systems may be closed,
+    // least recently used first, guarded by itself
+    private static final Map<Path, Folder> FOLDERS = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final JComponent chooser;
+    // the walks of the folders shown, only used on the event dispatch thread
+    private final Map<File, Walk> walks = new HashMap<>();
+    private volatile long repainted;
+
+    // a folder as last read
+    private static final class Folder {
+        private final FileTime modified;
+        private final long files;
+        private final Path[] folders;
+
+        private Folder(FileTime modified, long files, Path[] folders) {
+            this.modified = modified;
+            this.files = files;
+            this.folders = folders;
+        }
+    }
+
+    /**
+     * The walk of a single folder, adding up the size of its files as they are read.
+     */
+    static final class Walk {
+        private final LongAdder total = new LongAdder();
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        /**
+         * @return the size of the files read so far, in bytes.
+         */
+        long getTotal() {
+            return total.sum();
+        }
+
+        /**
+         * @return true if every file inside the folder has been read.
+         */
+        boolean isDone() {
+            return done;
+        }
+    }
+
+    /**
+     * Constructs a new <code>FolderSizes</code>.
+     * @param chooser The chooser the sizes are shown in, which is repainted as they grow.
+     */
+    FolderSizes(JComponent chooser) {
+        this.chooser = chooser;
+    }
+
+    /**
+     * Finds the walk of a folder, starting it if it has not been started. Must be called on the event dispatch thread.
+     * @param folder The folder to find the size of.
+     * @return the walk of the folder, or null if the folder is not part of a file system.
+     */
+    Walk request(File folder) {
+        Walk walk = walks.get(folder);
+        if(walk != null)
+            return walk;
+        Path path;
+        try {
+            path = folder.toPath();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        Walk started = new Walk();
+        walks.put(folder, started);
+        WALKERS.execute(ForkJoinTask.adapt(() -> {
+            walk(started, path);
+            started.done = !started.cancelled;
+            repaint(true);
+        }));
+        return started;
+    }
+
+    /**
+     * Cancels the walks of the folders that are no longer shown. Must be called on the event dispatch thread.
+     * @param shown The files shown, every walk of a folder not among them that is not done is cancelled.
+     */
+    void retain(Collection<File> shown) {
+        Set<File> kept = new HashSet<>(shown);
+        for(Iterator<Map.Entry<File, Walk>> it = walks.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<File, Walk> entry = it.next();
+            if(!entry.getValue().done && !kept.contains(entry.getKey())) {
+                entry.getValue().cancelled = true;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Cancels every walk, and forgets every size found, as the directory of the chooser changed or it was closed.
+     * Must be called on the event dispatch thread.
+     */
+    void clear() {
+        for(Walk walk : walks.values())
+            walk.cancelled = true;
+        walks.clear();
+    }
+
+    // adds the size of the files of a folder and of its sub folders to a walk, forking a task per sub folder
+    private void walk(Walk walk, Path folder) {
+        if(walk.cancelled)
+            return;
+        Folder read = read(walk, folder);
+        if(read == null)
+            return;
+        walk.total.add(read.files);
+        repaint(false);
+        if(read.folders.length == 0)
+            return;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(read.folders.length);
+        for(Path sub : read.folders)
+            tasks.add(ForkJoinTask.adapt(() -> walk(walk, sub)));
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    // the files and sub folders of a folder, listed again only if it was modified since it was last read
+    private static Folder read(Walk walk, Path folder) {
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(folder, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+        Folder cached;
+        synchronized(FOLDERS) {
+            cached = FOLDERS.get(folder);
+        }
+        if(cached != null && cached.modified.equals(modified))
+            return cached;
+
+        long files = 0;
+        List<Path> folders = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for(Path entry : stream) {
+                // a folder only partly read is never kept
+                if(walk.cancelled)
+                    return null;
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if(attributes.isDirectory())
+                        folders.add(entry);
+                    else
+                        files += attributes.size();
+                } catch (IOException | SecurityException e) {
+                    // removed while it was listed, or not readable
+                }
+            }
+        } catch (IOException | DirectoryIteratorException | SecurityException e) {
+            // a folder that cannot be read adds nothing
+            return null;
+        }
+        Folder read = new Folder(modified, files, folders.toArray(new Path[0]));
+        if(folder.getFileSystem() == FileSystems.getDefault()) {
+            synchronized(FOLDERS) {
+                FOLDERS.put(folder, read);
+                if(FOLDERS.size() > FOLDER_LIMIT)
+                    FOLDERS.remove(FOLDERS.keySet().iterator().next());
+            }
+        }
+        return read;
+    }
+
+    // repaints the chooser at most every REPAINT_INTERVAL while walks are adding up, and whenever one is done
+    private void repaint(boolean done) {
+        long now = System.nanoTime();
+        if(!done && now - repainted < REPAINT_INTERVAL)
+            return;
+        repainted = now;
+        chooser.repaint();
+    }
+}
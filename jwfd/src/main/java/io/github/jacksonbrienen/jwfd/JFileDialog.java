@@ -9,10 +9,23 @@
 package io.github.jacksonbrienen.jwfd;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileView;
+import javax.swing.plaf.basic.BasicDirectoryModel;
+import javax.swing.plaf.basic.BasicFileChooserUI;
+import javax.swing.plaf.metal.MetalFileChooserUI;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.text.AbstractDocument;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Internal class used to display a <code>JFileChooser</code> in more of a dialog style. Providing file checking,
@@ -43,10 +56,161 @@ final class JFileDialog {
         }
     }
 
+    // The Metal file chooser, listing directories with a ListingDirectoryModel so changes made while the dialog is open
+    // are shown without listing the directory again. The details view sorts through the model, off the event dispatch thread.
+    private static final class ListingFileChooserUI extends MetalFileChooserUI {
+        private ListingDirectoryModel model;
+        private LazyFileView fileView;
+        private NameCompleter completer;
+        private boolean naturalSort;
+        // the sizes of the folders shown, null unless folder sizes are shown
+        private FolderSizes folderSizes;
+
+        public ListingFileChooserUI(JFileChooser chooser) {
+            super(chooser);
+        }
+
+        protected void createModel() {
+            if(model != null)
+                model.invalidateFileCache();
+            model = new ListingDirectoryModel(getFileChooser());
+            // the rows of a prefetched directory are painted with the attributes read by the prefetch
+            model.setAttributeListener(attributes -> ((LazyFileView) getFileView(getFileChooser())).seed(attributes));
+            model.setOrder(model.getOrder().withNatural(naturalSort));
+        }
+
+        public BasicDirectoryModel getModel() {
+            return model;
+        }
+
+        public void installComponents(JFileChooser fc) {
+            super.installComponents(fc);
+            // the file name field is the only text field of the Metal file chooser
+            JTextField field = find(fc, JTextField.class);
+            if(field != null && field.getDocument() instanceof AbstractDocument) {
+                completer = new NameCompleter(field, () -> model);
+                ((AbstractDocument) field.getDocument()).setDocumentFilter(completer);
+            }
+        }
+
+        public void setFileName(String filename) {
+            if(completer == null) {
+                super.setFileName(filename);
+                return;
+            }
+            completer.setSuspended(true);
+            try {
+                super.setFileName(filename);
+            } finally {
+                completer.setSuspended(false);
+            }
+        }
+
+        public FileView getFileView(JFileChooser fc) {
+            if(fileView == null)
+                fileView = new LazyFileView(fc, super.getFileView(fc));
+            return fileView;
+        }
+
+        public void clearIconCache() {
+            super.clearIconCache();
+            if(fileView != null)
+                fileView.clear();
+            if(folderSizes != null)
+                folderSizes.clear();
+        }
+
+        protected JPanel createDetailsView(JFileChooser fc) {
+            JPanel panel = super.createDetailsView(fc);
+            JTable table = find(panel, JTable.class);
+            if(table != null) {
+                table.setRowSorter(new ListingRowSorter(table, model));
+                // folders have no size of their own, the size column shows the size of their files instead when asked to
+                TableCellRenderer cells = table.getDefaultRenderer(Object.class);
+                table.setDefaultRenderer(Object.class, (t, value, isSelected, hasFocus, row, column) -> {
+                    FolderSizes.Walk walk = value == null && folderSizes != null && isSizeColumn(t, column) ? folderSize(t, row) : null;
+                    if(walk == null)
+                        return cells.getTableCellRendererComponent(t, value, isSelected, hasFocus, row, column);
+                    Component c = cells.getTableCellRendererComponent(t, walk.getTotal(), isSelected, hasFocus, row, column);
+                    if(!walk.isDone() && c instanceof JLabel)
+                        ((JLabel) c).setText(((JLabel) c).getText() + "\u2026");
+                    return c;
+                });
+                // rows are read ahead as the table scrolls, and as rows are added to the part of it that is showing
+                if(table.getParent() instanceof JViewport)
+                    ((JViewport) table.getParent()).addChangeListener(e -> prefetchRows(table));
+                table.getModel().addTableModelListener(e -> prefetchRows(table));
+            }
+            return panel;
+        }
+
+        // reads the attributes of the visible rows of the table, and of the rows just around them
+        private void prefetchRows(JTable table) {
+            Rectangle visible = table.getVisibleRect();
+            int count = model.getSize();
+            if(visible.isEmpty() || count == 0)
+                return;
+            int first = table.rowAtPoint(visible.getLocation());
+            int last = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+            first = Math.max(0, (first < 0 ? 0 : first) - LazyFileView.LOOK_AHEAD);
+            last = Math.min(count - 1, (last < 0 ? count - 1 : last) + LazyFileView.LOOK_AHEAD);
+            LazyFileView view = (LazyFileView) getFileView(getFileChooser());
+            List<File> shown = new ArrayList<>(last - first + 1);
+            for(int row = first; row <= last; row++) {
+                File f = (File) model.getElementAt(row);
+                view.prefetch(f);
+                shown.add(f);
+            }
+            if(folderSizes != null)
+                folderSizes.retain(shown);
+        }
+
+        // true if a column of the details view is its size column
+        private static boolean isSizeColumn(JTable table, int column) {
+            return ListingRowSorter.keyOf(table, table.convertColumnIndexToModel(column)) == ListingOrder.Key.SIZE;
+        }
+
+        // the walk adding up the size of the folder of a row, or null if the row is not a folder of a file system
+        private FolderSizes.Walk folderSize(JTable table, int row) {
+            Object f = table.getModel().getValueAt(table.convertRowIndexToModel(row), 0);
+            if(!(f instanceof File) || !((File) f).isDirectory() || DirectoryListing.toPath(getFileChooser().getFileSystemView(), (File) f) == null)
+                return null;
+            return folderSizes.request((File) f);
+        }
+
+        public void setFolderSizes(boolean shown) {
+            if(folderSizes != null)
+                folderSizes.clear();
+            folderSizes = shown ? new FolderSizes(getFileChooser()) : null;
+        }
+
+        public void setNaturalSort(boolean naturalSort) {
+            this.naturalSort = naturalSort;
+            if(model != null)
+                model.setOrder(model.getOrder().withNatural(naturalSort));
+        }
+
+        // finds the first component of a type inside a container, such as the table of the details view
+        private static <T extends Component> T find(Container container, Class<T> type) {
+            for(Component c : container.getComponents()) {
+                if(type.isInstance(c))
+                    return type.cast(c);
+                if(c instanceof Container) {
+                    T found = find((Container) c, type);
+                    if(found != null)
+                        return found;
+                }
+            }
+            return null;
+        }
+    }
+
     // A JFileChooser that uses the SelectionApprover to ensure selected files are in a proper state (writable/readable) or if they exist.
     // This depends on the state of the JFileChooser.
     private static final class MutableAcceptanceFileChooser extends JFileChooser {
-        private final SelectionApprover openFileApprover = new SelectionApprover(super::approveSelection) {
+        private static final long serialVersionUID = 1L;
+
+        private final SelectionApprover openFileApprover = new SelectionApprover(this::approveUnlessClosing) {
             public void approveSelection() {
                 File f = getSelectedFile();
                 if(!f.exists())
@@ -58,7 +222,7 @@ final class JFileDialog {
             }
         };
 
-        private final SelectionApprover saveFileApprover = new SelectionApprover(super::approveSelection) {
+        private final SelectionApprover saveFileApprover = new SelectionApprover(this::approveUnlessClosing) {
             public void approveSelection() {
                 // Make sure the saved file has one of the possible selected extensions
                 String name = getSelectedFile().getAbsolutePath();
@@ -74,8 +238,9 @@ final class JFileDialog {
                     if(addExtension) {
                         // if none of the extensions are correct, set the first possible extension
                         name += extensions[0];
-                        // and update the selected file
-                        setSelectedFile(new File(name));
+                        // and update the selected file, in the file system it was chosen in
+                        File selected = getSelectedFile();
+                        setSelectedFile(selected instanceof PathFile ? ((PathFile) selected).resolveSibling(selected.getName() + extensions[0]) : new File(name));
                     }
                 }
 
@@ -103,11 +268,14 @@ final class JFileDialog {
             }
         };
 
-        private final SelectionApprover folderApprover = new SelectionApprover(super::approveSelection) {
+        private final SelectionApprover folderApprover = new SelectionApprover(this::approveUnlessClosing) {
             public void approveSelection() {
                 if(!getSelectedFile().exists()) {
                     if(JOptionPane.showConfirmDialog(MutableAcceptanceFileChooser.this, String.format("The folder %s does not exist. Do you want to create it?", getSelectedFile().getName()), "Create Folder", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.NO_OPTION)
                         return;
+                    // the dialog may have been closed while asking
+                    if(closing)
+                        return;
                     if(!getSelectedFile().mkdirs()){
                         JOptionPane.showMessageDialog(MutableAcceptanceFileChooser.this, String.format("Error creating folder:\n%s\n\nMake sure you have permissions to create folders in this directory.", getSelectedFile().getAbsolutePath()), "Could not create Folder", JOptionPane.ERROR_MESSAGE);
                         return;
@@ -117,7 +285,7 @@ final class JFileDialog {
             }
         };
 
-        private final SelectionApprover multiApprover = new SelectionApprover(super::approveSelection) {
+        private final SelectionApprover multiApprover = new SelectionApprover(this::approveUnlessClosing) {
             @Override
             public void approveSelection() {
                 // Essentially a copy of the single open file approver, but for a list of files instead
@@ -147,11 +315,128 @@ final class JFileDialog {
         };
 
         private SelectionApprover approver;
+        private Duration timeout;
+        private DialogHandle handle;
+        private boolean preselectFilter;
+        // the view browsing archives and other file systems, null if the chooser only browses the default file system
+        private ArchiveFileSystemView archives;
+        // true if the archives holding the selection are left open for the caller, who is handed paths inside them
+        private boolean keepArchives;
+        // the dialog currently showing this chooser, only used on the event dispatch thread
+        private JDialog dialog;
+        // set by the timeout or handle from any thread, the dialog is closed once it is showing
+        private volatile boolean closeRequested;
+        // set once the dialog is being closed by its timeout or handle, after which no selection is approved
+        private boolean closing;
 
         public MutableAcceptanceFileChooser() {
             super(".");
         }
 
+        public void updateUI() {
+            super.updateUI();
+            // the Metal look and feel is extended to use a ListingDirectoryModel, other look and feels keep their own model
+            if(getUI().getClass() == MetalFileChooserUI.class)
+                setUI(new ListingFileChooserUI(this));
+        }
+
+        public int showDialog(Component parent, String approveButtonText) {
+            Timer timer = null;
+            int result = CANCEL_OPTION;
+            // kept, as every method reference is a new object and the handle detaches by identity
+            Runnable closer = this::requestClose;
+            try {
+                if(handle != null && handle.attach(closer))
+                    return CANCEL_OPTION;
+                if(timeout != null) {
+                    timer = new Timer((int) Math.min(timeout.toMillis(), Integer.MAX_VALUE), e -> requestClose());
+                    timer.setRepeats(false);
+                    timer.start();
+                }
+                result = super.showDialog(parent, approveButtonText);
+                return result;
+            } finally {
+                if(timer != null)
+                    timer.stop();
+                if(handle != null)
+                    handle.detach(closer);
+                // make sure the model stops loading and watching, even if the dialog could not be shown
+                if(getUI() instanceof BasicFileChooserUI)
+                    ((BasicFileChooserUI) getUI()).getModel().invalidateFileCache();
+                // and the folder sizes stop being walked
+                if(getUI() instanceof ListingFileChooserUI)
+                    ((ListingFileChooserUI) getUI()).setFolderSizes(false);
+                // the archives holding the selection are left for the caller to close, a caller given URIs opens them again itself
+                if(archives != null)
+                    archives.close(result == APPROVE_OPTION && keepArchives ? selection() : Collections.emptyList());
+            }
+        }
+
+        // the files chosen in the dialog
+        private List<File> selection() {
+            return isMultiSelectionEnabled() ? Arrays.asList(getSelectedFiles()) : Collections.singletonList(getSelectedFile());
+        }
+
+        public void setCurrentDirectory(File dir) {
+            if(archives != null && ArchiveFileSystemView.isArchive(dir)) {
+                // an archive is browsed from its root, an archive that cannot be opened is not entered
+                dir = archives.enter(dir);
+                if(dir == null)
+                    return;
+            }
+            super.setCurrentDirectory(dir);
+        }
+
+        protected JDialog createDialog(Component parent) {
+            dialog = super.createDialog(parent);
+            dialog.addWindowListener(new WindowAdapter() {
+                public void windowOpened(WindowEvent e) {
+                    // a close requested before the dialog was showing is applied as soon as it is
+                    if(closeRequested)
+                        close();
+                }
+            });
+            return dialog;
+        }
+
+        // asks for the dialog to be closed, this may be called from any thread
+        private void requestClose() {
+            closeRequested = true;
+            SwingUtilities.invokeLater(this::close);
+        }
+
+        // closes the dialog as canceled, along with any message it is showing
+        private void close() {
+            if(closing || dialog == null || !dialog.isShowing())
+                return;
+            closing = true;
+            for(Window owned : dialog.getOwnedWindows())
+                owned.dispose();
+            cancelSelection();
+        }
+
+        private void approveUnlessClosing() {
+            if(!closing)
+                super.approveSelection();
+        }
+
+        // applies the options of a single dialog to this chooser, other file systems are browsed for archives or a start outside the default one
+        public void setOptions(DialogOptions options, boolean otherFileSystem) {
+            if(options == null)
+                options = new DialogOptions();
+            timeout = options.getTimeout();
+            handle = options.getHandle();
+            preselectFilter = options.isPreselectFilter();
+            if(options.isBrowseArchives() || otherFileSystem) {
+                archives = new ArchiveFileSystemView(getFileSystemView());
+                setFileSystemView(archives);
+            }
+            if(getUI() instanceof ListingFileChooserUI) {
+                ((ListingFileChooserUI) getUI()).setNaturalSort(options.isNaturalSort());
+                ((ListingFileChooserUI) getUI()).setFolderSizes(options.isFolderSizes());
+            }
+        }
+
         public void approveSelection() {
             if(approver != null)
                 approver.approveSelection();
@@ -198,6 +483,12 @@ final class JFileDialog {
             }else {
                 addChoosableFileFilter(FileExtension.ALL);
             }
+            if(preselectFilter) {
+                // the filter matching the most files of the starting directory, rather than the first filter
+                FileExtension chosen = ExtensionCounts.choose(DirectoryListing.toPath(getFileSystemView(), getCurrentDirectory()), filters);
+                if(chosen != null)
+                    setFileFilter(chosen);
+            }
         }
     }
 
@@ -205,28 +496,19 @@ final class JFileDialog {
      * Shows a basic open file dialog that is thread blocking.
      * @param frame The parent frame used as a relative component for modality.
      * @param title The title of the shown dialog window.
-     * @param path The starting directory for the dialog.
+     * @param directory The starting directory for the dialog, a <code>PathFile</code> for a directory of a file system other than the default one.
+     * @param options The options of the dialog, may be null to use the default options.
+     * @param keepArchives True if the caller is given the selection as paths, and closes the archives holding it.
+     * False to close every archive opened by the dialog, for a caller given the selection as URIs.
      * @param filters A list of filters to filter the files shown.
-     * @return a String representing the selected path. Will return null if no file is selected or the dialog is canceled.
+     * @return the selected file. Will return null if no file is selected or the dialog is canceled.
      */
-    static String showOpenDialog(Frame frame, String title, String path, FileExtension... filters){
-        MutableAcceptanceFileChooser chooser = new MutableAcceptanceFileChooser();
-        chooser.getActionMap().get("viewTypeDetails").actionPerformed(null);
-
-        if(title != null)
-            chooser.setDialogTitle(title);
-        else
-            chooser.setDialogTitle("Open");
-
-        if(path != null)
-            chooser.setCurrentDirectory(new File(path));
-        else
-            chooser.setCurrentDirectory(new File(System.getProperty("user.home")));
-
+    static File showOpenDialog(Frame frame, String title, File directory, DialogOptions options, boolean keepArchives, FileExtension... filters){
+        MutableAcceptanceFileChooser chooser = createChooser(title != null ? title : "Open", directory, options, keepArchives);
         chooser.setFilters(filters);
 
         if(chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION)
-            return chooser.getSelectedFile().getAbsolutePath();
+            return chooser.getSelectedFile().getAbsoluteFile();
         return null;
     }
 
@@ -234,28 +516,19 @@ final class JFileDialog {
      * Shows a dialog to open multiple files this is thread blocking.
      * @param frame The parent frame used as a relative component for modality.
      * @param title The title of the shown dialog window.
-     * @param path The starting directory for the dialog.
+     * @param directory The starting directory for the dialog, a <code>PathFile</code> for a directory of a file system other than the default one.
+     * @param options The options of the dialog, may be null to use the default options.
+     * @param keepArchives True if the caller is given the selection as paths, and closes the archives holding it.
+     * False to close every archive opened by the dialog, for a caller given the selection as URIs.
      * @param filters A list of filters to filter the files shown.
-     * @return a String array representing the files selected. Will return null if no files are selected or the dialog is canceled.
+     * @return the selected files. Will return null if no files are selected or the dialog is canceled.
      */
-    static String[] showMultiDialog(Frame frame, String title, String path, FileExtension... filters){
-        MutableAcceptanceFileChooser chooser = new MutableAcceptanceFileChooser();
-        chooser.getActionMap().get("viewTypeDetails").actionPerformed(null);
-
-        if(title != null)
-            chooser.setDialogTitle(title);
-        else
-            chooser.setDialogTitle("Open");
-
-        if(path != null)
-            chooser.setCurrentDirectory(new File(path));
-        else
-            chooser.setCurrentDirectory(new File(System.getProperty("user.home")));
-
+    static File[] showMultiDialog(Frame frame, String title, File directory, DialogOptions options, boolean keepArchives, FileExtension... filters){
+        MutableAcceptanceFileChooser chooser = createChooser(title != null ? title : "Open", directory, options, keepArchives);
         chooser.setFilters(filters);
 
         if(chooser.showMultiDialog(frame) == JFileChooser.APPROVE_OPTION)
-            return Arrays.stream(chooser.getSelectedFiles()).map(File::getAbsolutePath).toArray(String[]::new);
+            return Arrays.stream(chooser.getSelectedFiles()).map(File::getAbsoluteFile).toArray(File[]::new);
         return null;
     }
 
@@ -263,29 +536,20 @@ final class JFileDialog {
      * Shows a basic save file dialog that is thread blocking.
      * @param frame The parent frame used as a relative component for modality.
      * @param title The title of the shown dialog window.
-     * @param path The starting directory for the dialog.
+     * @param directory The starting directory for the dialog, a <code>PathFile</code> for a directory of a file system other than the default one.
+     * @param options The options of the dialog, may be null to use the default options.
+     * @param keepArchives True if the caller is given the selection as paths, and closes the archives holding it.
+     * False to close every archive opened by the dialog, for a caller given the selection as URIs.
      * @param filters A list of filters to filter the files shown.
-     * @return a String representing the selected path, if a selected path does not have an extension the first extension of the selected filter will be appended.
+     * @return the selected file, if a selected file does not have an extension the first extension of the selected filter will be appended.
      * Will return null if no file is selected or the dialog is canceled.
      */
-    static String showSaveDialog(Frame frame, String title, String path, FileExtension... filters){
-        MutableAcceptanceFileChooser chooser = new MutableAcceptanceFileChooser();
-        chooser.getActionMap().get("viewTypeDetails").actionPerformed(null);
-
-        if(title != null)
-            chooser.setDialogTitle(title);
-        else
-            chooser.setDialogTitle("Save As");
-
-        if(path != null)
-            chooser.setCurrentDirectory(new File(path));
-        else
-            chooser.setCurrentDirectory(new File(System.getProperty("user.home")));
-
+    static File showSaveDialog(Frame frame, String title, File directory, DialogOptions options, boolean keepArchives, FileExtension... filters){
+        MutableAcceptanceFileChooser chooser = createChooser(title != null ? title : "Save As", directory, options, keepArchives);
         chooser.setFilters(filters);
 
         if(chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION)
-            return chooser.getSelectedFile().getAbsolutePath();
+            return chooser.getSelectedFile().getAbsoluteFile();
         return null;
     }
 
@@ -293,25 +557,72 @@ final class JFileDialog {
      * Shows an open file dialog to select a folder this is thread blocking.
      * @param frame The parent frame used as a relative component for modality.
      * @param title The title of the shown dialog window.
-     * @param path The starting directory for the dialog.
-     * @return a String representing the selected path. Will return null if no file is selected or the dialog is canceled.
+     * @param directory The starting directory for the dialog, a <code>PathFile</code> for a directory of a file system other than the default one.
+     * @param options The options of the dialog, may be null to use the default options.
+     * @param keepArchives True if the caller is given the selection as paths, and closes the archives holding it.
+     * False to close every archive opened by the dialog, for a caller given the selection as URIs.
+     * @return the selected folder. Will return null if no folder is selected or the dialog is canceled.
      */
-    static String showDirDialog(Frame frame, String title, String path) {
+    static File showDirDialog(Frame frame, String title, File directory, DialogOptions options, boolean keepArchives) {
+        MutableAcceptanceFileChooser chooser = createChooser(title != null ? title : "Open Folder", directory, options, keepArchives);
+
+        if(chooser.showDirDialog(frame) == JFileChooser.APPROVE_OPTION)
+            return chooser.getSelectedFile().getAbsoluteFile();
+        return null;
+    }
+
+    // creates a chooser in the details view with the options of a dialog, starting in its directory
+    private static MutableAcceptanceFileChooser createChooser(String title, File directory, DialogOptions options, boolean keepArchives) {
         MutableAcceptanceFileChooser chooser = new MutableAcceptanceFileChooser();
+        chooser.keepArchives = keepArchives;
         chooser.getActionMap().get("viewTypeDetails").actionPerformed(null);
-
-        if(title != null)
-            chooser.setDialogTitle(title);
-        else
-            chooser.setDialogTitle("Open Folder");
-        if(path != null)
-            chooser.setCurrentDirectory(new File(path));
+        chooser.setDialogTitle(title);
+        // the file system view has to be in place before a directory of another file system is set
+        chooser.setOptions(options, directory instanceof PathFile);
+
+        if(directory instanceof PathFile)
+            chooser.archives.register((PathFile) directory);
+        if(directory != null)
+            chooser.setCurrentDirectory(directory);
         else
             chooser.setCurrentDirectory(new File(System.getProperty("user.home")));
 
-        if(chooser.showDirDialog(frame) == JFileChooser.APPROVE_OPTION)
-            return chooser.getSelectedFile().getAbsolutePath();
-        return null;
+        if(options != null && options.getRecentDirectories() != null) {
+            List<Path> recent = options.getRecentDirectories().get(options.getRecentContext());
+            if(!recent.isEmpty())
+                chooser.setAccessory(createRecentList(chooser, recent));
+        }
+        return chooser;
+    }
+
+    // lists the recent directories of a dialog beside the chooser, selecting one goes to it
+    private static JComponent createRecentList(JFileChooser chooser, List<Path> recent) {
+        DefaultListModel<File> model = new DefaultListModel<>();
+        for(Path directory : recent)
+            model.addElement(directory.toFile());
+        JList<File> list = new JList<>(model);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        DefaultListCellRenderer renderer = new DefaultListCellRenderer();
+        list.setCellRenderer((l, f, index, isSelected, cellHasFocus) -> {
+            renderer.getListCellRendererComponent(l, f, index, isSelected, cellHasFocus);
+            renderer.setText(f.getName().isEmpty() ? f.getPath() : f.getName());
+            renderer.setToolTipText(f.getPath());
+            renderer.setIcon(UIManager.getIcon("FileView.directoryIcon"));
+            return renderer;
+        });
+        list.addListSelectionListener(e -> {
+            if(!e.getValueIsAdjusting() && list.getSelectedValue() != null)
+                chooser.setCurrentDirectory(list.getSelectedValue());
+        });
+        // the selection is cleared once the chooser leaves the directory, so it can be selected again
+        chooser.addPropertyChangeListener(JFileChooser.DIRECTORY_CHANGED_PROPERTY, e -> {
+            if(list.getSelectedValue() != null && !list.getSelectedValue().equals(e.getNewValue()))
+                list.clearSelection();
+        });
+        JScrollPane pane = new JScrollPane(list);
+        pane.setBorder(BorderFactory.createTitledBorder("Recent"));
+        pane.setPreferredSize(new Dimension(160, 0));
+        return pane;
     }
 
 }
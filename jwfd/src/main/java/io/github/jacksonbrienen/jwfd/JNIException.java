@@ -16,6 +16,8 @@ package io.github.jacksonbrienen.jwfd;
  */
 final class JNIException extends Exception{
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Constructs a new <code>JNIException</code> with the specified detail message.
      * This message will be generated by a JNI function, and should include things like the file and line number where the exception is thrown.
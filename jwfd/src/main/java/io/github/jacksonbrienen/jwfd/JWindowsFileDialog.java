@@ -10,6 +10,14 @@ package io.github.jacksonbrienen.jwfd;
 
 import static io.github.jacksonbrienen.jwfd.WindowsFileDialog.IS_WINDOWS;
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A File Dialog that can be used for opening files, multiple files, saving files, and opening Directories.<br>
@@ -62,12 +70,26 @@ public final class JWindowsFileDialog {
      * @return a <code>String</code> representing the selected path, or null if no path is selected.
      */
     public static String showOpenDialog(Frame frame, String title, String path, FileExtension... filters){
-        if(IS_WINDOWS) {
+        return showOpenDialog(frame, title, path, null, filters);
+    }
+
+    /**
+     * Opens a basic open file dialog.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param title a <code>String</code> representing the title displayed by the dialog window.
+     * @param path a <code>String</code> representing the starting directory for this dialog.
+     * @param options a <code>DialogOptions</code> holding the options of this dialog, or null to use the default options.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return a <code>String</code> representing the selected path, or null if no path is selected.
+     */
+    public static String showOpenDialog(Frame frame, String title, String path, DialogOptions options, FileExtension... filters){
+        path = start(path, options);
+        if(isNative(options)) {
             try {
-                return WindowsFileDialog.openFileDialog(frame, title, path, toWindowsFilter(filters));
+                return remember(options, WindowsFileDialog.openFileDialog(frame, title, path, toWindowsFilter(preselect(options, toPath(path), filters))), false);
             } catch(JNIException | UnsatisfiedLinkError ignored) {}
         }
-        return JFileDialog.showOpenDialog(frame, title, path, filters);
+        return remember(options, toString(JFileDialog.showOpenDialog(frame, title, toFile(path), options, false, filters)), false);
     }
 
     /**
@@ -113,12 +135,27 @@ public final class JWindowsFileDialog {
      * If the selected path does not have an extension a default extension based on the selected filter will be appended.
      */
     public static String showSaveDialog(Frame frame, String title, String path, FileExtension... filters){
-        if(IS_WINDOWS) {
+        return showSaveDialog(frame, title, path, null, filters);
+    }
+
+    /**
+     * Opens a basic save file dialog.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param title a <code>String</code> representing the title displayed by the dialog window.
+     * @param path a <code>String</code> representing the starting directory for this dialog.
+     * @param options a <code>DialogOptions</code> holding the options of this dialog, or null to use the default options.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return a <code>String</code> representing the selected path, or null if no path is selected.
+     * If the selected path does not have an extension a default extension based on the selected filter will be appended.
+     */
+    public static String showSaveDialog(Frame frame, String title, String path, DialogOptions options, FileExtension... filters){
+        path = start(path, options);
+        if(isNative(options)) {
             try {
-                return WindowsFileDialog.openSaveDialog(frame, title, path, toWindowsFilter(filters));
+                return remember(options, WindowsFileDialog.openSaveDialog(frame, title, path, toWindowsFilter(preselect(options, toPath(path), filters))), false);
             } catch(JNIException | UnsatisfiedLinkError ignored) {}
         }
-        return JFileDialog.showSaveDialog(frame, title, path, filters);
+        return remember(options, toString(JFileDialog.showSaveDialog(frame, title, toFile(path), options, false, filters)), false);
     }
 
     /**
@@ -160,12 +197,27 @@ public final class JWindowsFileDialog {
      * @return a <code>String[]</code> representing the selected paths, or null if no paths are selected.
      */
     public static String[] showMultiDialog(Frame frame, String title, String path, FileExtension... filters){
-        if(IS_WINDOWS) {
+        return showMultiDialog(frame, title, path, null, filters);
+    }
+
+    /**
+     * Opens an open multi file dialog.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param title a <code>String</code> representing the title displayed by the dialog window.
+     * @param path a <code>String</code> representing the starting directory for this dialog.
+     * @param options a <code>DialogOptions</code> holding the options of this dialog, or null to use the default options.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return a <code>String[]</code> representing the selected paths, or null if no paths are selected.
+     */
+    public static String[] showMultiDialog(Frame frame, String title, String path, DialogOptions options, FileExtension... filters){
+        path = start(path, options);
+        if(isNative(options)) {
             try {
-                return WindowsFileDialog.openMultipleDialog(frame, title, path, toWindowsFilter(filters));
+                return remember(options, WindowsFileDialog.openMultipleDialog(frame, title, path, toWindowsFilter(preselect(options, toPath(path), filters))));
             } catch(JNIException | UnsatisfiedLinkError ignored) {}
         }
-        return JFileDialog.showMultiDialog(frame, title, path, filters);
+        File[] files = JFileDialog.showMultiDialog(frame, title, toFile(path), options, false, filters);
+        return remember(options, files == null ? null : Arrays.stream(files).map(JWindowsFileDialog::toString).toArray(String[]::new));
     }
 
     /**
@@ -195,12 +247,312 @@ public final class JWindowsFileDialog {
      * @return a <code>String</code> representing the selected path, or null if no path is selected.
      */
     public static String showDirectoryDialog(Frame frame, String title, String path){
-        if(IS_WINDOWS) {
+        return showDirectoryDialog(frame, title, path, null);
+    }
+
+    /**
+     * Opens an open folder dialog.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param title a <code>String</code> representing the title displayed by the dialog window.
+     * @param path a <code>String</code> representing the starting directory for this dialog.
+     * @param options a <code>DialogOptions</code> holding the options of this dialog, or null to use the default options.
+     * @return a <code>String</code> representing the selected path, or null if no path is selected.
+     */
+    public static String showDirectoryDialog(Frame frame, String title, String path, DialogOptions options){
+        path = start(path, options);
+        if(isNative(options)) {
+            try {
+                return remember(options, WindowsFileDialog.openDirDialog(frame, title, path), true);
+            } catch(JNIException | UnsatisfiedLinkError ignored) {}
+        }
+        return remember(options, toString(JFileDialog.showDirDialog(frame, title, toFile(path), options, false)), true);
+    }
+
+    /**
+     * Opens an open file dialog, returning the selection as a <code>SelectedFile</code>.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return a <code>SelectedFile</code> representing the selected path, or null if no path is selected.
+     */
+    public static SelectedFile openFile(Frame frame, FileExtension... filters){
+        return openFile(frame, null, null, null, filters);
+    }
+
+    /**
+     * Opens an open file dialog, returning the selection as a <code>SelectedFile</code>.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param title a <code>String</code> representing the title displayed by the dialog window.
+     * @param start a <code>Path</code> representing the starting directory for this dialog, which may be of any <code>FileSystem</code>, a start outside the default file system is always shown as a <code>JFileChooser</code>.
+     * @param options a <code>DialogOptions</code> holding the options of this dialog, or null to use the default options.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return a <code>SelectedFile</code> representing the selected path, or null if no path is selected.
+     */
+    public static SelectedFile openFile(Frame frame, String title, Path start, DialogOptions options, FileExtension... filters){
+        start = start(start, options);
+        if(isNative(options, start)) {
+            try {
+                return SelectedFile.of(remember(options, toPath(WindowsFileDialog.openFileDialog(frame, title, toString(start), toWindowsFilter(preselect(options, start, filters)))), false), options);
+            } catch(JNIException | UnsatisfiedLinkError ignored) {}
+        }
+        return SelectedFile.of(remember(options, toPath(JFileDialog.showOpenDialog(frame, title, toFile(start), options, true, filters)), false), options);
+    }
+
+    /**
+     * Opens a save file dialog, returning the selection as a <code>SelectedFile</code>.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return a <code>SelectedFile</code> representing the selected path, or null if no path is selected.
+     * If the selected path does not have an extension a default extension based on the selected filter will be appended.
+     */
+    public static SelectedFile saveFile(Frame frame, FileExtension... filters){
+        return saveFile(frame, null, null, null, filters);
+    }
+
+    /**
+     * Opens a save file dialog, returning the selection as a <code>SelectedFile</code>.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param title a <code>String</code> representing the title displayed by the dialog window.
+     * @param start a <code>Path</code> representing the starting directory for this dialog, which may be of any <code>FileSystem</code>, a start outside the default file system is always shown as a <code>JFileChooser</code>.
+     * @param options a <code>DialogOptions</code> holding the options of this dialog, or null to use the default options.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return a <code>SelectedFile</code> representing the selected path, or null if no path is selected.
+     * If the selected path does not have an extension a default extension based on the selected filter will be appended.
+     */
+    public static SelectedFile saveFile(Frame frame, String title, Path start, DialogOptions options, FileExtension... filters){
+        start = start(start, options);
+        if(isNative(options, start)) {
+            try {
+                return SelectedFile.of(remember(options, toPath(WindowsFileDialog.openSaveDialog(frame, title, toString(start), toWindowsFilter(preselect(options, start, filters)))), false), options);
+            } catch(JNIException | UnsatisfiedLinkError ignored) {}
+        }
+        return SelectedFile.of(remember(options, toPath(JFileDialog.showSaveDialog(frame, title, toFile(start), options, true, filters)), false), options);
+    }
+
+    /**
+     * Opens an open multi file dialog, returning the selection as a list of <code>SelectedFile</code>s.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return an unmodifiable <code>List</code> representing the selected paths, or null if no paths are selected.
+     */
+    public static List<SelectedFile> openFiles(Frame frame, FileExtension... filters){
+        return openFiles(frame, null, null, null, filters);
+    }
+
+    /**
+     * Opens an open multi file dialog, returning the selection as a list of <code>SelectedFile</code>s.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param title a <code>String</code> representing the title displayed by the dialog window.
+     * @param start a <code>Path</code> representing the starting directory for this dialog, which may be of any <code>FileSystem</code>, a start outside the default file system is always shown as a <code>JFileChooser</code>.
+     * @param options a <code>DialogOptions</code> holding the options of this dialog, or null to use the default options.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return an unmodifiable <code>List</code> representing the selected paths, or null if no paths are selected.
+     */
+    public static List<SelectedFile> openFiles(Frame frame, String title, Path start, DialogOptions options, FileExtension... filters){
+        return SelectedFile.of(openPaths(frame, title, start, options, filters), options);
+    }
+
+    /**
+     * Opens an open multi file dialog, returning the selection as a <code>PathSelection</code>.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return a <code>PathSelection</code> representing the selected paths, or null if no paths are selected.
+     */
+    public static PathSelection openPaths(Frame frame, FileExtension... filters){
+        return openPaths(frame, null, null, null, filters);
+    }
+
+    /**
+     * Opens an open multi file dialog, returning the selection as a <code>PathSelection</code>.<br>
+     * Unlike <code>showMultiDialog</code>, the selection is not returned as a full <code>String</code> for every path,
+     * which keeps selections of many files small and quick to return.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param title a <code>String</code> representing the title displayed by the dialog window.
+     * @param start a <code>Path</code> representing the starting directory for this dialog, which may be of any <code>FileSystem</code>, a start outside the default file system is always shown as a <code>JFileChooser</code>.
+     * @param options a <code>DialogOptions</code> holding the options of this dialog, or null to use the default options.
+     * @param filters an array of <code>FileExtension</code>s that filter the shown results by this dialog.
+     * @return a <code>PathSelection</code> representing the selected paths, or null if no paths are selected.
+     */
+    public static PathSelection openPaths(Frame frame, String title, Path start, DialogOptions options, FileExtension... filters){
+        start = start(start, options);
+        if(isNative(options, start)) {
+            try {
+                return remember(options, WindowsFileDialog.openMultipleCompactDialog(frame, title, toString(start), toWindowsFilter(preselect(options, start, filters))));
+            } catch(JNIException | UnsatisfiedLinkError ignored) {}
+        }
+        File[] files = JFileDialog.showMultiDialog(frame, title, toFile(start), options, true, filters);
+        return remember(options, files == null ? null : PathSelection.of(files));
+    }
+
+    /**
+     * Opens an open folder dialog, returning the selection as a <code>SelectedFile</code>.
+     * @param frame The parent frame used as a relative component for modality.
+     * @return a <code>SelectedFile</code> representing the selected path, or null if no path is selected.
+     */
+    public static SelectedFile openDirectory(Frame frame){
+        return openDirectory(frame, null, null, null);
+    }
+
+    /**
+     * Opens an open folder dialog, returning the selection as a <code>SelectedFile</code>.
+     * @param frame The parent frame used as a relative component for modality.
+     * @param title a <code>String</code> representing the title displayed by the dialog window.
+     * @param start a <code>Path</code> representing the starting directory for this dialog, which may be of any <code>FileSystem</code>, a start outside the default file system is always shown as a <code>JFileChooser</code>.
+     * @param options a <code>DialogOptions</code> holding the options of this dialog, or null to use the default options.
+     * @return a <code>SelectedFile</code> representing the selected path, or null if no path is selected.
+     */
+    public static SelectedFile openDirectory(Frame frame, String title, Path start, DialogOptions options){
+        start = start(start, options);
+        if(isNative(options, start)) {
             try {
-                return WindowsFileDialog.openDirDialog(frame, title, path);
+                return SelectedFile.of(remember(options, toPath(WindowsFileDialog.openDirDialog(frame, title, toString(start))), true), options);
             } catch(JNIException | UnsatisfiedLinkError ignored) {}
         }
-        return JFileDialog.showDirDialog(frame, title, path);
+        return SelectedFile.of(remember(options, toPath(JFileDialog.showDirDialog(frame, title, toFile(start), options, true)), true), options);
+    }
+
+    /**
+     * Hints that a file dialog is about to be shown in a directory, so it is listed in the background and the dialog
+     * shows it at once.<br>
+     * The directory is listed, filtered, and sorted, and the icons and names of the files shown first are read, then
+     * kept for a short time for the next dialog shown in it. A dialog only uses the prefetch if it is shown with the same
+     * first filter, and the directory has not been modified since. Does nothing where the native dialog is shown.
+     * @param directory a <code>Path</code> representing the directory the dialog will start in, or null for the directory a dialog starts in by default.
+     * @param filters an array of <code>FileExtension</code>s the dialog will be shown with, the same instances must be given to the dialog.
+     */
+    public static void prefetch(Path directory, FileExtension... filters){
+        prefetch(directory, null, filters);
+    }
+
+    /**
+     * Hints that a file dialog is about to be shown in a directory, so it is listed in the background and the dialog
+     * shows it at once.<br>
+     * The directory is listed, filtered, and sorted, and the icons and names of the files shown first are read, then
+     * kept for a short time for the next dialog shown in it. A dialog only uses the prefetch if it is shown with the same
+     * filter selected, its first filter or the one preselected by its options, and the same sort order, and the
+     * directory has not been modified since. Does nothing where the native dialog is shown.
+     * @param directory a <code>Path</code> representing the directory the dialog will start in, or null for the directory a dialog with these options starts in.
+     * @param options a <code>DialogOptions</code> holding the options the dialog will be shown with, or null to use the default options.
+     * @param filters an array of <code>FileExtension</code>s the dialog will be shown with, the same instances must be given to the dialog.
+     */
+    public static void prefetch(Path directory, DialogOptions options, FileExtension... filters){
+        if(isNative(options, directory))
+            return;
+        FileExtension first = filters != null && filters.length > 0 ? filters[0] : FileExtension.ALL;
+        ListingOrder order = ListingOrder.DEFAULT.withNatural(options != null && options.isNaturalSort());
+        // finding the recent directory a dialog starts in can take a moment, so it is found on the prefetching thread
+        ListingPrefetch.prefetch(() -> {
+            Path start = orHome(start(directory, options));
+            return start.getFileSystem() == FileSystems.getDefault() ? start.toFile() : null;
+        }, dir -> {
+            FileExtension chosen = options != null && options.isPreselectFilter() ? ExtensionCounts.choose(dir.toPath(), filters) : null;
+            return chosen != null ? chosen : first;
+        }, order);
+    }
+
+    // the native dialog is used wherever it can be, unless the dialog needs something only the JFileChooser supports
+    private static boolean isNative(DialogOptions options) {
+        return IS_WINDOWS && (options == null || !options.isChooserOnly());
+    }
+
+    // the native dialog can only start in the default file system
+    private static boolean isNative(DialogOptions options, Path start) {
+        return isNative(options) && (start == null || start.getFileSystem() == FileSystems.getDefault());
+    }
+
+    // the directory a dialog starts in, the most recent directory of its context when no directory is given
+    private static String start(String path, DialogOptions options) {
+        if(path != null || options == null || options.getRecentDirectories() == null)
+            return path;
+        Path recent = options.getRecentDirectories().findStart(options.getRecentContext());
+        return recent == null ? null : recent.toString();
+    }
+
+    private static Path start(Path start, DialogOptions options) {
+        if(start != null || options == null || options.getRecentDirectories() == null)
+            return start;
+        return options.getRecentDirectories().findStart(options.getRecentContext());
+    }
+
+    // adds the directory a selection was made in to the recent directories of the dialog, returning the selection
+    private static Path remember(DialogOptions options, Path selected, boolean directory) {
+        if(selected == null || options == null || options.getRecentDirectories() == null)
+            return selected;
+        // only directories of the default file system are kept, not the inside of an archive
+        Path used = directory ? selected : selected.getParent();
+        if(used != null && used.isAbsolute() && used.getFileSystem() == FileSystems.getDefault()) {
+            try {
+                options.getRecentDirectories().add(options.getRecentContext(), used);
+            } catch (IOException | RuntimeException ignored) {
+                // a store that cannot be written does not fail the dialog
+            }
+        }
+        return selected;
+    }
+
+    private static String remember(DialogOptions options, String selected, boolean directory) {
+        if(selected != null)
+            remember(options, toPath(selected), directory);
+        return selected;
+    }
+
+    private static String[] remember(DialogOptions options, String[] selected) {
+        if(selected != null && selected.length > 0)
+            remember(options, selected[0], false);
+        return selected;
+    }
+
+    private static PathSelection remember(DialogOptions options, PathSelection selected) {
+        if(selected != null && !selected.isEmpty())
+            remember(options, selected.getDirectory(0), true);
+        return selected;
+    }
+
+    // the native dialog always selects its first filter, so the filter to preselect is moved to the front
+    private static FileExtension[] preselect(DialogOptions options, Path start, FileExtension... filters) {
+        if(options == null || !options.isPreselectFilter())
+            return filters;
+        return ExtensionCounts.moveToFront(orHome(start), filters);
+    }
+
+    // a dialog given no directory, and with no recent directory, starts in the home directory, native or not
+    private static Path orHome(Path start) {
+        return start != null ? start : Paths.get(System.getProperty("user.home"));
+    }
+
+    // the starting directory of a dialog as the String the native dialog takes
+    private static String toString(Path start) {
+        return start == null ? null : start.toAbsolutePath().toString();
+    }
+
+    // a file chosen in the JFileChooser as the String the show dialog methods return, the URI of a file of another file system,
+    // whose archive has been closed by the dialog and is opened again from the URI by the caller
+    private static String toString(File f) {
+        if(f == null)
+            return null;
+        return f instanceof PathFile ? f.toURI().toString() : f.getAbsolutePath();
+    }
+
+    // the starting directory of a dialog as the File the JFileChooser takes
+    private static File toFile(String path) {
+        return path == null ? null : new File(path);
+    }
+
+    // a start in another file system is browsed through a PathFile
+    private static File toFile(Path start) {
+        return start == null ? null : PathFile.of(start);
+    }
+
+    // the URI returned for a file of another file system is not a path, it is read as no path
+    private static Path toPath(String path) {
+        try {
+            return path == null ? null : Paths.get(path);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static Path toPath(File f) {
+        return f == null ? null : f.toPath();
     }
 
     // function that turns a FileExtension[] into a String[][] in windows filter form that the JNI functions can use
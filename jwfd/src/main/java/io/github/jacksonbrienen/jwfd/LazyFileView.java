@@ -0,0 +1,257 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileSystemView;
+import javax.swing.filechooser.FileView;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The <code>FileView</code> of <code>JFileDialog</code>, reading the display name, icon, and type description of files
+ * in the background instead of while their rows are painted.<br>
+ * A file is shown with its file name and the generic file or folder icon of the look and feel until its attributes
+ * are read. Only the files that are painted, and the rows just around the visible rows of the details view, are read,
+ * in batches on a single background thread. The newest requests are read first, so scrolling quickly through a large
+ * directory only reads the rows it stops at, and a directory costs the same to show whatever its size.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see FileView
+ */
+final class LazyFileView extends FileView {
+
+    /**
+     * How many rows before and after the visible rows of the details view are read ahead
+     */
+    static final int LOOK_AHEAD = 32;
+
+    // how many files are read before their attributes are handed to the event dispatch thread
+    private static final int BATCH_SIZE = 32;
+    // requests beyond this many are dropped oldest first, they are requested again if they are painted again
+    private static final int QUEUE_LIMIT = 512;
+    // the reading thread ends once it has been idle this long
+    private static final long IDLE_SECONDS = 5;
+
+    private final JComponent chooser;
+    private final FileView delegate;
+    private final Icon fileIcon = UIManager.getIcon("FileView.fileIcon");
+    private final Icon directoryIcon = UIManager.getIcon("FileView.directoryIcon");
+    private final ThreadPoolExecutor reader;
+    // the attributes read so far, only used on the event dispatch thread
+    private final Map<File, Attributes> cache = new HashMap<>();
+
+    // guarded by this
+    private final Deque<File> queue = new ArrayDeque<>();
+    // files queued or being read, so a file painted again before it is read is not read twice
+    private final Set<File> requested = new HashSet<>();
+    private boolean reading;
+    private int generation;
+
+    /**
+     * Constructs a new <code>LazyFileView</code>.
+     * @param chooser The chooser this view is for, which is repainted as attributes are read.
+     * @param delegate The view reading the attributes of files.
+     */
+    LazyFileView(JComponent chooser, FileView delegate) {
+        this.chooser = chooser;
+        this.delegate = delegate;
+        reader = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "JWFD File View Thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reader.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The attributes of a single file, as read by the delegate.
+     */
+    static final class Attributes {
+        private final String name;
+        private final Icon icon;
+        private final String typeDescription;
+
+        private Attributes(String name, Icon icon, String typeDescription) {
+            this.name = name;
+            this.icon = icon;
+            this.typeDescription = typeDescription;
+        }
+
+        /**
+         * Reads the attributes of a file the same way the file view of the Metal file chooser does, without a chooser,
+         * so they can be read before the chooser they are shown in exists.
+         * @param fsv The <code>FileSystemView</code> the chooser will use.
+         * @param f The file to read the attributes of.
+         * @return the attributes of the file.
+         */
+        static Attributes read(FileSystemView fsv, File f) {
+            boolean directory = f.isDirectory();
+            Icon icon;
+            if(fsv.isFloppyDrive(f))
+                icon = UIManager.getIcon("FileView.floppyDriveIcon");
+            else if(fsv.isDrive(f))
+                icon = UIManager.getIcon("FileView.hardDriveIcon");
+            else if(fsv.isComputerNode(f))
+                icon = UIManager.getIcon("FileView.computerIcon");
+            else
+                icon = UIManager.getIcon(directory ? "FileView.directoryIcon" : "FileView.fileIcon");
+            String type = fsv.getSystemTypeDescription(f);
+            if(type == null)
+                type = UIManager.getString(directory ? "FileChooser.directoryDescriptionText" : "FileChooser.fileDescriptionText");
+            return new Attributes(fsv.getSystemDisplayName(f), icon, type);
+        }
+    }
+
+    @Override
+    public String getName(File f) {
+        if(!SwingUtilities.isEventDispatchThread())
+            return delegate.getName(f);
+        Attributes attributes = attributes(f);
+        if(attributes != null)
+            return attributes.name;
+        return f.getName().isEmpty() ? f.getPath() : f.getName();
+    }
+
+    @Override
+    public Icon getIcon(File f) {
+        if(!SwingUtilities.isEventDispatchThread())
+            return delegate.getIcon(f);
+        Attributes attributes = attributes(f);
+        if(attributes != null)
+            return attributes.icon;
+        return f.isDirectory() ? directoryIcon : fileIcon;
+    }
+
+    @Override
+    public String getTypeDescription(File f) {
+        if(!SwingUtilities.isEventDispatchThread())
+            return delegate.getTypeDescription(f);
+        Attributes attributes = attributes(f);
+        return attributes != null ? attributes.typeDescription : null;
+    }
+
+    @Override
+    public String getDescription(File f) {
+        return delegate.getDescription(f);
+    }
+
+    @Override
+    public Boolean isTraversable(File f) {
+        return delegate.isTraversable(f);
+    }
+
+    /**
+     * Reads the attributes of a file ahead of it being painted, if they have not been read. Must be called on the event dispatch thread.
+     * @param f The file to read the attributes of.
+     */
+    void prefetch(File f) {
+        if(f != null && !cache.containsKey(f))
+            request(f);
+    }
+
+    /**
+     * Forgets every attribute read, and every file waiting to be read, as the directory or filter of the chooser changed.
+     * Must be called on the event dispatch thread.
+     */
+    void clear() {
+        cache.clear();
+        synchronized(this) {
+            generation++;
+            queue.clear();
+            requested.clear();
+        }
+    }
+
+    /**
+     * Keeps attributes read ahead of the chooser, such as by a prefetch of its directory, so their rows are painted
+     * with them right away. Must be called on the event dispatch thread.
+     * @param read The attributes of each file.
+     */
+    void seed(Map<File, Attributes> read) {
+        if(read.isEmpty())
+            return;
+        cache.putAll(read);
+        chooser.repaint();
+    }
+
+    private Attributes attributes(File f) {
+        if(f == null)
+            return null;
+        Attributes attributes = cache.get(f);
+        if(attributes == null)
+            request(f);
+        return attributes;
+    }
+
+    private void request(File f) {
+        synchronized(this) {
+            if(requested.add(f)) {
+                queue.addFirst(f);
+                if(queue.size() > QUEUE_LIMIT)
+                    requested.remove(queue.pollLast());
+            }
+            if(reading || queue.isEmpty())
+                return;
+            reading = true;
+        }
+        reader.execute(this::read);
+    }
+
+    // reads the queue in batches until it is empty, on the reading thread
+    private void read() {
+        while(true) {
+            List<File> batch = new ArrayList<>(BATCH_SIZE);
+            int batchGeneration;
+            synchronized(this) {
+                while(batch.size() < BATCH_SIZE && !queue.isEmpty())
+                    batch.add(queue.pollFirst());
+                if(batch.isEmpty()) {
+                    reading = false;
+                    return;
+                }
+                batchGeneration = generation;
+            }
+            Map<File, Attributes> read = new HashMap<>();
+            for(File f : batch)
+                read.put(f, read(f));
+            SwingUtilities.invokeLater(() -> store(batchGeneration, read));
+        }
+    }
+
+    private Attributes read(File f) {
+        try {
+            return new Attributes(delegate.getName(f), delegate.getIcon(f), delegate.getTypeDescription(f));
+        } catch (RuntimeException e) {
+            // a file that cannot be read keeps the attributes it is shown with until then
+            return new Attributes(f.getName().isEmpty() ? f.getPath() : f.getName(), f.isDirectory() ? directoryIcon : fileIcon, null);
+        }
+    }
+
+    // keeps the attributes of a batch, unless the directory changed while it was read
+    private void store(int batchGeneration, Map<File, Attributes> read) {
+        synchronized(this) {
+            if(batchGeneration != generation)
+                return;
+            requested.removeAll(read.keySet());
+        }
+        cache.putAll(read);
+        chooser.repaint();
+    }
+}
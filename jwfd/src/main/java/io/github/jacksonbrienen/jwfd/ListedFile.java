@@ -0,0 +1,69 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import java.io.File;
+
+/**
+ * A <code>File</code> handle onto a slot of a <code>DirectoryListing</code>, that answers attribute queries with the
+ * values read when the directory was listed, instead of asking the file system again every time the chooser filters,
+ * sorts or paints it.<br>
+ * Handles are created on demand for the rows a chooser asks for, and are not kept by the listing. They copy the attributes
+ * of their slot rather than referencing the listing, so a handle kept by the chooser does not keep the listing alive.<br>
+ * <code>exists()</code> is deliberately not cached, as the selection approvers of <code>JFileDialog</code> depend on it.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see DirectoryListing
+ */
+final class ListedFile extends File {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte flags;
+    private final long length;
+    private final long lastModified;
+
+    /**
+     * Constructs a handle onto a slot of a listing.
+     * @param parent The directory the entry was listed from.
+     * @param view A view of the listing containing the slot.
+     * @param slot The slot of the entry.
+     */
+    ListedFile(File parent, DirectoryListing.View view, int slot) {
+        super(parent, view.name(slot));
+        flags = view.flags(slot);
+        length = view.size(slot);
+        lastModified = view.lastModified(slot);
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return (flags & DirectoryListing.DIRECTORY) != 0;
+    }
+
+    @Override
+    public boolean isFile() {
+        return (flags & DirectoryListing.DIRECTORY) == 0;
+    }
+
+    @Override
+    public boolean isHidden() {
+        return (flags & DirectoryListing.HIDDEN) != 0;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,619 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileSystemView;
+import javax.swing.plaf.basic.BasicDirectoryModel;
+import java.beans.PropertyChangeEvent;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * A directory model for <code>JFileDialog</code> that lists the current directory once, and then keeps the shown entries
+ * current by applying the changes reported by a <code>DirectoryWatcher</code> row by row, rather than listing and
+ * filtering the whole directory again.<br>
+ * Changing the filter, file hiding, or selection mode filters the in memory listing again without touching the file system.
+ * The rows are kept as the slots of the listing they show, a <code>File</code> is only created when the chooser asks for
+ * a row, so only the rows that are painted or selected ever become objects.<br>
+ * The entries shown are only modified on the event dispatch thread.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see javax.swing.plaf.basic.BasicDirectoryModel
+ * @see DirectoryListing
+ */
+final class ListingDirectoryModel extends BasicDirectoryModel {
+
+    private static final long serialVersionUID = 1L;
+
+    // batches larger than this are applied by filtering the whole listing again in the background,
+    // as firing one event per row would cost more than replacing the contents at once
+    private static final int INCREMENTAL_LIMIT = 256;
+
+    private final JFileChooser chooser;
+    // the rows shown, as slots of view, only read and written on the event dispatch thread
+    private DirectoryListing.View view;
+    private int[] rows = new int[0];
+    private int size;
+    // the rows sorted by name for completing typed names, also only used on the event dispatch thread
+    private NameIndex nameIndex;
+    private Vector<File> files;
+    private Vector<File> directories;
+    private boolean busy;
+
+    // guarded by this
+    private ExecutorService loader;
+    private Future<?> task;
+    private int fetchId;
+    private File loading;
+    private DirectoryListing listing;
+    private DirectoryWatcher watcher;
+    private ListingOrder order = ListingOrder.DEFAULT;
+    // a prefetch taken for a listing that was replaced before it was installed, kept for the next listing of its directory
+    private ListingPrefetch.Prefetched prefetched;
+    private Consumer<Map<File, LazyFileView.Attributes>> attributeListener;
+
+    /**
+     * The filter and order of the chooser, applied to the slots of a single view.<br>
+     * While the chooser has no custom <code>FileView</code>, entries listed through their path are filtered and sorted
+     * using the attributes of the listing alone, without creating a <code>File</code> for each of them.
+     */
+    private static final class Criteria {
+        private final JFileChooser chooser;
+        private final DirectoryListing.View view;
+        private final ListingOrder order;
+        private final IntPredicate traversable = this::isTraversable;
+        private final FileSystemView fsv;
+        private final FileFilter filter;
+        private final boolean fileSelectionEnabled;
+        private final boolean useFileHiding;
+        private final boolean attributesOnly;
+        // true if archives are browsed as folders, which shows them whatever the filter
+        private final boolean archives;
+
+        private Criteria(JFileChooser chooser, DirectoryListing.View view, ListingOrder order) {
+            this.chooser = chooser;
+            this.view = view;
+            this.order = order;
+            fsv = chooser.getFileSystemView();
+            filter = chooser.getFileFilter();
+            fileSelectionEnabled = chooser.isFileSelectionEnabled();
+            useFileHiding = chooser.isFileHidingEnabled();
+            attributesOnly = !view.isForeign() && chooser.getFileView() == null;
+            archives = fsv instanceof ArchiveFileSystemView;
+        }
+
+        // the criteria of a chooser opening files with a filter and the default settings, applied without a chooser
+        private Criteria(DirectoryListing.View view, ListingOrder order, FileFilter filter) {
+            chooser = null;
+            this.view = view;
+            this.order = order;
+            fsv = null;
+            this.filter = filter;
+            fileSelectionEnabled = true;
+            useFileHiding = true;
+            attributesOnly = true;
+            archives = false;
+        }
+
+        // true if rows selected with the criteria of a prefetch are the rows these criteria would select
+        private boolean matches(ListingPrefetch.Prefetched prefetched) {
+            return attributesOnly && !archives && fileSelectionEnabled && useFileHiding
+                    && prefetched.getFilter() == filter && prefetched.getOrder().equals(order);
+        }
+
+        // true if the slot is shown, as BasicDirectoryModel would decide it
+        private boolean accept(int slot) {
+            if(!attributesOnly) {
+                File file = view.file(slot);
+                if(useFileHiding && fsv.isHiddenFile(file))
+                    return false;
+                return (chooser.accept(file) || archives && ArchiveFileSystemView.isArchive(file))
+                        && (fileSelectionEnabled || chooser.isTraversable(file));
+            }
+            if(useFileHiding && view.isHidden(slot))
+                return false;
+            if(filter != null && !(filter instanceof FileExtension ? ((FileExtension) filter).accept(view, slot) : filter.accept(view.file(slot)))
+                    && !(archives && ArchiveFileSystemView.isArchive(view, slot)))
+                return false;
+            return fileSelectionEnabled || isTraversable(slot);
+        }
+
+        private boolean isTraversable(int slot) {
+            if(!attributesOnly)
+                return chooser.isTraversable(view.file(slot));
+            return view.isDirectory(slot) || archives && ArchiveFileSystemView.isArchive(view, slot);
+        }
+
+        private int compare(int a, int b) {
+            return order.compare(view, traversable, a, b);
+        }
+
+        // the slots of the view that are shown, in order
+        private int[] select() {
+            int[] selected = new int[view.getCount()];
+            int count = 0;
+            for(int slot = 0; slot < selected.length; slot++)
+                if(!view.isDeleted(slot) && accept(slot))
+                    selected[count++] = slot;
+            selected = Arrays.copyOf(selected, count);
+            order.sort(view, traversable, selected);
+            return selected;
+        }
+    }
+
+    /**
+     * Constructs a new <code>ListingDirectoryModel</code> and starts listing the current directory of the chooser.
+     * @param chooser The chooser this model lists directories for.
+     */
+    ListingDirectoryModel(JFileChooser chooser) {
+        super(chooser);
+        this.chooser = chooser;
+        validateFileCache();
+    }
+
+    /**
+     * Selects the slots of a view shown by a file dialog opening files with a filter, in an order, as a model of a
+     * chooser with the default settings would, for prefetching a directory before its chooser exists.
+     * @param view The view to select the slots of.
+     * @param order The order of the slots.
+     * @param filter The filter of the dialog.
+     * @return the slots shown, in order.
+     */
+    static int[] select(DirectoryListing.View view, ListingOrder order, FileFilter filter) {
+        return new Criteria(view, order, filter).select();
+    }
+
+    /**
+     * Sets where the display attributes read by a prefetch of a directory go once the directory is shown. Must be called on the event dispatch thread.
+     * @param listener Called on the event dispatch thread with the attributes of the prefetched rows, may be null.
+     */
+    void setAttributeListener(Consumer<Map<File, LazyFileView.Attributes>> listener) {
+        attributeListener = listener;
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent e) {
+        String prop = e.getPropertyName();
+        if(JFileChooser.FILE_FILTER_CHANGED_PROPERTY.equals(prop) ||
+           JFileChooser.FILE_HIDING_CHANGED_PROPERTY.equals(prop) ||
+           JFileChooser.FILE_SELECTION_MODE_CHANGED_PROPERTY.equals(prop) ||
+           JFileChooser.FILE_VIEW_CHANGED_PROPERTY.equals(prop)) {
+            // only the shown entries change, the listing itself is still current
+            synchronized(this) {
+                if(isListed(chooser.getCurrentDirectory()))
+                    refilter();
+                else
+                    validateFileCache();
+            }
+        } else {
+            super.propertyChange(e);
+        }
+    }
+
+    /**
+     * Lists the current directory of the chooser if it is not already listed.<br>
+     * When the listing is kept current by a native watcher it is only filtered again, as rescanning would find nothing new.
+     * This matters as <code>JFileChooser</code> rescans whenever a dialog is shown, or a folder is created.
+     */
+    @Override
+    public void validateFileCache() {
+        if(chooser == null)
+            return; // called by the BasicDirectoryModel constructor, before this model is ready
+        File directory = chooser.getCurrentDirectory();
+        if(directory == null)
+            return;
+        synchronized(this) {
+            if(isListed(directory) && watcher != null && !watcher.isPolling())
+                refilter();
+            else
+                reload(directory);
+        }
+    }
+
+    /**
+     * Stops listing and watching, this happens when the dialog is closed or the model is replaced.
+     */
+    @Override
+    public synchronized void invalidateFileCache() {
+        fetchId++;
+        cancelTask();
+        closeWatcher();
+        loading = null;
+        prefetched = null;
+        if(loader != null) {
+            loader.shutdownNow();
+            loader = null;
+        }
+    }
+
+    @Override
+    public Vector<File> getFiles() {
+        if(files == null)
+            split();
+        return files;
+    }
+
+    @Override
+    public Vector<File> getDirectories() {
+        if(directories == null)
+            split();
+        return directories;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public Object getElementAt(int index) {
+        if(index < 0 || index >= size)
+            throw new ArrayIndexOutOfBoundsException(index);
+        return view.file(rows[index]);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if(!(o instanceof File) || view == null)
+            return -1;
+        File file = (File) o;
+        if(view.isForeign()) {
+            for(int i = 0; i < size; i++)
+                if(view.file(rows[i]).equals(file))
+                    return i;
+            return -1;
+        }
+        if(!view.getDirectory().equals(file.getParentFile()))
+            return -1;
+        // only the row holding the newest slot of the name can match
+        String name = file.getName();
+        for(int i = 0; i < size; i++)
+            if(view.nameEquals(rows[i], name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Finds the names of the rows starting with a prefix, for completing a name as it is typed. Must be called on the event dispatch thread.
+     * @param prefix The typed prefix, compared ignoring case.
+     * @param limit The largest number of names returned.
+     * @return the names of the rows starting with the prefix, sorted ignoring case with shorter names first,
+     * or an empty list if the directory is still being listed.
+     */
+    List<String> complete(String prefix, int limit) {
+        if(nameIndex == null)
+            return Collections.emptyList();
+        return nameIndex.complete(view, prefix, limit);
+    }
+
+    /**
+     * @return the order the rows are shown in.
+     */
+    synchronized ListingOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * Changes the order the rows are shown in. The rows are sorted again in the background, and replaced all at once
+     * when sorting is done.
+     * @param order The new order.
+     */
+    synchronized void setOrder(ListingOrder order) {
+        if(this.order.equals(order))
+            return;
+        this.order = order;
+        if(listing != null && loading == null)
+            refilter();
+    }
+
+    // true if the listing is of the given directory, and is not about to be replaced
+    private boolean isListed(File directory) {
+        return listing != null && loading == null && listing.getDirectory().equals(directory);
+    }
+
+    // lists a directory in the background, registering a watcher first so no change made while listing is missed
+    private synchronized void reload(File directory) {
+        int id = ++fetchId;
+        cancelTask();
+        closeWatcher();
+        loading = directory;
+        SwingUtilities.invokeLater(() -> setBusy(true));
+
+        FileSystemView fsv = chooser.getFileSystemView();
+        ListingOrder currentOrder = order;
+        task = loader().submit(() -> {
+            DirectoryWatcher newWatcher = null;
+            try {
+                Path path = DirectoryListing.toPath(fsv, directory);
+                if(path != null)
+                    newWatcher = DirectoryWatcher.register(path);
+                // taken once the watcher is registered, so a change made since the prefetch either shows in its check or is reported
+                ListingPrefetch.Prefetched ready = path != null && newWatcher != null ? prefetched(directory) : null;
+                DirectoryListing newListing = ready != null ? ready.getListing() : DirectoryListing.load(fsv, directory, path);
+                if(newListing.getPath() == null && newWatcher != null) {
+                    // the directory could not be read through its path, so there is nothing to watch
+                    newWatcher.close();
+                    newWatcher = null;
+                }
+                DirectoryListing.View newView;
+                int[] selected;
+                NameIndex index;
+                Map<File, LazyFileView.Attributes> attributes;
+                Criteria criteria = ready != null ? new Criteria(chooser, ready.getView(), currentOrder) : null;
+                if(criteria != null && criteria.matches(ready)) {
+                    newView = ready.getView();
+                    selected = ready.getRows();
+                    index = ready.getIndex();
+                    attributes = ready.getAttributes();
+                } else {
+                    // the dialog differs from the prefetch, only the listing is used
+                    newView = newListing.view();
+                    selected = new Criteria(chooser, newView, currentOrder).select();
+                    index = NameIndex.build(newView, selected);
+                    attributes = Collections.emptyMap();
+                }
+                DirectoryWatcher installedWatcher = newWatcher;
+                SwingUtilities.invokeLater(() -> install(id, newListing, installedWatcher, newView, selected, index, currentOrder, attributes));
+            } catch (InterruptedException e) {
+                if(newWatcher != null)
+                    newWatcher.close();
+            }
+        });
+    }
+
+    // the prefetch of a directory, taken by an earlier listing that was replaced before it was installed, or taken now
+    private ListingPrefetch.Prefetched prefetched(File directory) throws InterruptedException {
+        ListingPrefetch.Prefetched ready;
+        synchronized(this) {
+            ready = prefetched;
+        }
+        if(ready == null || !ready.getListing().getDirectory().equals(directory))
+            ready = ListingPrefetch.take(directory);
+        else if(!ready.isCurrent())
+            ready = null;
+        synchronized(this) {
+            prefetched = ready;
+        }
+        return ready;
+    }
+
+    // filters the in memory listing again in the background
+    private synchronized void refilter() {
+        int id = ++fetchId;
+        cancelTask();
+        DirectoryListing current = listing;
+        int modCount = current.getModCount();
+        ListingOrder currentOrder = order;
+        task = loader().submit(() -> {
+            DirectoryListing.View newView = current.view();
+            int[] selected = new Criteria(chooser, newView, currentOrder).select();
+            NameIndex index = NameIndex.build(newView, selected);
+            SwingUtilities.invokeLater(() -> {
+                synchronized(ListingDirectoryModel.this) {
+                    if(id != fetchId)
+                        return;
+                    if(current.getModCount() != modCount) {
+                        // changes arrived while filtering, filter again so none of them are lost
+                        refilter();
+                        return;
+                    }
+                }
+                replaceRows(newView, selected, index);
+            });
+        });
+    }
+
+    // called on the event dispatch thread once a directory has been listed
+    private void install(int id, DirectoryListing newListing, DirectoryWatcher newWatcher, DirectoryListing.View newView, int[] selected,
+                         NameIndex index, ListingOrder usedOrder, Map<File, LazyFileView.Attributes> attributes) {
+        synchronized(this) {
+            if(id != fetchId) {
+                if(newWatcher != null)
+                    newWatcher.close();
+                return;
+            }
+            listing = newListing;
+            watcher = newWatcher;
+            loading = null;
+            // the listing of a prefetch changes from here on, so it cannot be used again
+            prefetched = null;
+            if(newWatcher != null)
+                newWatcher.start(newListing.names(), batch -> apply(newWatcher, batch));
+            // the order changed while listing, show what was listed now and sort it again
+            if(!usedOrder.equals(order))
+                refilter();
+        }
+        replaceRows(newView, selected, index);
+        if(attributeListener != null)
+            attributeListener.accept(attributes);
+        setBusy(false);
+    }
+
+    // called on the event dispatch thread for every batch of changes reported by the watcher
+    private void apply(DirectoryWatcher source, DirectoryWatcher.Batch batch) {
+        DirectoryListing current;
+        ListingOrder currentOrder;
+        synchronized(this) {
+            if(source != watcher || loading != null)
+                return;
+            if(batch.isOverflow()) {
+                reload(listing.getDirectory());
+                return;
+            }
+            current = listing;
+            currentOrder = order;
+        }
+
+        List<DirectoryWatcher.Change> changes = batch.getChanges();
+        int[] replaced = new int[changes.size()];
+        int[] added = new int[changes.size()];
+        for(int i = 0; i < changes.size(); i++) {
+            DirectoryWatcher.Change change = changes.get(i);
+            if(change.getEntry() == null) {
+                replaced[i] = current.remove(change.getName());
+                added[i] = -1;
+            } else {
+                replaced[i] = current.find(change.getName());
+                added[i] = current.put(change.getEntry());
+            }
+        }
+
+        synchronized(this) {
+            if(current.needsCompacting()) {
+                // the rows are numbered by the compacted listing from here on, so all of them are replaced
+                listing = current.compact();
+                refilter();
+                return;
+            }
+            if(changes.size() > INCREMENTAL_LIMIT || (task != null && !task.isDone()) || view == null || !view.isOf(current)) {
+                // a refilter in progress would overwrite the rows changed here, so let it pick the changes up instead,
+                // and rows of another listing cannot be compared to its slots
+                refilter();
+                return;
+            }
+        }
+
+        // every slot shown or replaced is part of the new view, as slots are only removed from a listing by compacting it
+        view = current.view();
+        Criteria criteria = new Criteria(chooser, view, currentOrder);
+        boolean repaint = false;
+        for(int i = 0; i < changes.size(); i++) {
+            int old = replaced[i];
+            int slot = added[i];
+            int index = old < 0 ? -1 : search(old, criteria);
+            boolean accepted = slot >= 0 && criteria.accept(slot);
+
+            if(index >= 0 && accepted && criteria.compare(old, slot) == 0) {
+                // modified in place, replace the row without an event so the selection is kept
+                rows[index] = slot;
+                nameIndex.replace(view, old, slot);
+                repaint = true;
+                continue;
+            }
+            if(index >= 0) {
+                System.arraycopy(rows, index + 1, rows, index, --size - index);
+                nameIndex.remove(view, old);
+                fireIntervalRemoved(this, index, index);
+            }
+            if(accepted) {
+                int insert = search(slot, criteria);
+                if(insert < 0) {
+                    insert = -insert - 1;
+                    if(size == rows.length)
+                        rows = Arrays.copyOf(rows, Math.max(16, size + (size >> 1)));
+                    System.arraycopy(rows, insert, rows, insert + 1, size++ - insert);
+                    rows[insert] = slot;
+                    nameIndex.add(view, slot);
+                    fireIntervalAdded(this, insert, insert);
+                }
+            }
+        }
+        files = null;
+        directories = null;
+        if(repaint)
+            chooser.repaint();
+    }
+
+    // finds the row of a slot by binary search, or -(insertion point) - 1 if it is not shown
+    private int search(int slot, Criteria criteria) {
+        int low = 0;
+        int high = size - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            int diff = criteria.compare(rows[mid], slot);
+            if(diff < 0)
+                low = mid + 1;
+            else if(diff > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    // called on the event dispatch thread, replaces every row at once
+    private void replaceRows(DirectoryListing.View newView, int[] selected, NameIndex index) {
+        // slots only mean the same entry within one listing
+        boolean unchanged = view != null && view.isOf(newView.getListing())
+                && size == selected.length && Arrays.equals(Arrays.copyOf(rows, size), selected);
+        view = newView;
+        nameIndex = index;
+        if(unchanged)
+            return;
+        rows = selected;
+        size = selected.length;
+        files = null;
+        directories = null;
+        fireContentsChanged();
+    }
+
+    // splits the rows into files and directories the same way BasicDirectoryModel does
+    private void split() {
+        Vector<File> newFiles = new Vector<>();
+        Vector<File> newDirectories = new Vector<>();
+        newDirectories.addElement(chooser.getFileSystemView().createFileObject(chooser.getCurrentDirectory(), ".."));
+        for(int i = 0; i < size; i++) {
+            File f = view.file(rows[i]);
+            if(chooser.isTraversable(f))
+                newDirectories.add(f);
+            else
+                newFiles.add(f);
+        }
+        files = newFiles;
+        directories = newDirectories;
+    }
+
+    private void setBusy(boolean busy) {
+        if(this.busy != busy) {
+            this.busy = busy;
+            firePropertyChange("busy", !busy, busy);
+        }
+    }
+
+    private ExecutorService loader() {
+        if(loader == null)
+            loader = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "JWFD Directory Loading Thread");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return loader;
+    }
+
+    private void cancelTask() {
+        if(task != null) {
+            task.cancel(true);
+            task = null;
+        }
+    }
+
+    private void closeWatcher() {
+        if(watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * The order the rows of a <code>ListingDirectoryModel</code> are shown in, by name, size, or modification date.
+ * Directories are always shown before files, whichever way the rows are sorted.<br>
+ * Names are compared by <code>CollationKey</code>s, built once for every row before sorting instead of once for every
+ * comparison, and sizes and dates are read from the attributes stored by the listing. Large listings build their keys
+ * and sort in parallel.<br>
+ * With natural ordering, runs of digits in names are compared by their numeric value, so "img2" is shown before "img10".
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see ListingDirectoryModel
+ * @see ListingRowSorter
+ */
+final class ListingOrder {
+
+    /**
+     * The attribute rows are sorted by.
+     */
+    enum Key {
+        NAME, SIZE, DATE
+    }
+
+    /**
+     * The order of a listing that has not been sorted, by name with directories first
+     */
+    static final ListingOrder DEFAULT = new ListingOrder(Key.NAME, true, false);
+
+    // listings with fewer rows than this build their keys on the calling thread, as Arrays.parallelSort does for sorting
+    private static final int PARALLEL_THRESHOLD = 8192;
+
+    private final Key key;
+    private final boolean ascending;
+    private final boolean natural;
+    // collators are not thread safe, every thread building keys uses its own copy of this one
+    private final Collator collator;
+    private final ThreadLocal<Collator> collators;
+
+    private ListingOrder(Key key, boolean ascending, boolean natural) {
+        this.key = key;
+        this.ascending = ascending;
+        this.natural = natural;
+        collator = Collator.getInstance();
+        // case is left to the tie break of the listing, so names differing only in case stay next to each other
+        collator.setStrength(Collator.SECONDARY);
+        collators = ThreadLocal.withInitial(() -> (Collator) collator.clone());
+    }
+
+    /**
+     * @return the attribute rows are sorted by.
+     */
+    Key getKey() {
+        return key;
+    }
+
+    /**
+     * @return true if rows are sorted in ascending order.
+     */
+    boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * @return true if runs of digits in names are compared by their numeric value.
+     */
+    boolean isNatural() {
+        return natural;
+    }
+
+    /**
+     * @param key The attribute to sort by.
+     * @param ascending True to sort in ascending order.
+     * @return an order sorting by the given attribute, keeping the natural ordering of this order.
+     */
+    ListingOrder withKey(Key key, boolean ascending) {
+        return new ListingOrder(key, ascending, natural);
+    }
+
+    /**
+     * @param natural True to compare runs of digits in names by their numeric value.
+     * @return an order sorting by the same attribute as this order, with the given natural ordering.
+     */
+    ListingOrder withNatural(boolean natural) {
+        return natural == this.natural ? this : new ListingOrder(key, ascending, natural);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof ListingOrder))
+            return false;
+        ListingOrder other = (ListingOrder) o;
+        return key == other.key && ascending == other.ascending && natural == other.natural;
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode() * 4 + (ascending ? 2 : 0) + (natural ? 1 : 0);
+    }
+
+    /**
+     * Compares two slots of a listing, building their keys on the spot. This must only be called on one thread at a time,
+     * as it is used to place the few rows changed by a batch of the watcher, on the event dispatch thread.
+     * @param view A view of the listing.
+     * @param traversable Tests if a slot is shown as a directory.
+     * @param a The first slot.
+     * @param b The second slot.
+     * @return a negative number, zero, or a positive number as slot a is shown before, at the same place as, or after slot b.
+     */
+    int compare(DirectoryListing.View view, IntPredicate traversable, int a, int b) {
+        return key(view, traversable, a, collator).compareTo(key(view, traversable, b, collator));
+    }
+
+    /**
+     * Sorts the slots of a listing, building the key of every slot once.
+     * @param view A view of the listing.
+     * @param traversable Tests if a slot is shown as a directory, this is called from several threads for large listings.
+     * @param slots The slots to sort, these are sorted in place.
+     */
+    void sort(DirectoryListing.View view, IntPredicate traversable, int[] slots) {
+        RowKey[] keys = new RowKey[slots.length];
+        IntStream indices = IntStream.range(0, slots.length);
+        if(slots.length >= PARALLEL_THRESHOLD)
+            indices = indices.parallel();
+        indices.forEach(i -> keys[i] = key(view, traversable, slots[i], collators.get()));
+        Arrays.parallelSort(keys);
+        for(int i = 0; i < slots.length; i++)
+            slots[i] = keys[i].slot;
+    }
+
+    private RowKey key(DirectoryListing.View view, IntPredicate traversable, int slot, Collator collator) {
+        String name = view.name(slot);
+        NameKey nameKey = natural ? new NameKey(null, naturalParts(name, collator)) : new NameKey(collator.getCollationKey(name), null);
+        long value = key == Key.SIZE ? view.size(slot) : key == Key.DATE ? view.lastModified(slot) : 0L;
+        return new RowKey(view, slot, traversable.test(slot), value, nameKey);
+    }
+
+    // splits a name into runs of digits and runs of everything else, so the runs can be compared separately
+    private static Object[] naturalParts(String name, Collator collator) {
+        List<Object> parts = new ArrayList<>();
+        int start = 0;
+        while(start < name.length()) {
+            boolean digits = isDigit(name.charAt(start));
+            int end = start + 1;
+            while(end < name.length() && isDigit(name.charAt(end)) == digits)
+                end++;
+            if(digits) {
+                // leading zeros do not change the value of a run, "007" and "7" are compared as equals
+                int first = start;
+                while(first < end - 1 && name.charAt(first) == '0')
+                    first++;
+                parts.add(name.substring(first, end));
+            } else {
+                parts.add(collator.getCollationKey(name.substring(start, end)));
+            }
+            start = end;
+        }
+        return parts.toArray();
+    }
+
+    // only ascii digits are read as numbers, as runs mixing the digits of several scripts have no single value
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // runs of digits are shown before any other text, the way Windows Explorer orders names
+    private static int compareNatural(Object[] a, Object[] b) {
+        int length = Math.min(a.length, b.length);
+        for(int i = 0; i < length; i++) {
+            Object partA = a[i];
+            Object partB = b[i];
+            boolean numberA = partA instanceof String;
+            if(numberA != partB instanceof String)
+                return numberA ? -1 : 1;
+            int diff;
+            if(numberA) {
+                String digitsA = (String) partA;
+                String digitsB = (String) partB;
+                // the longer run of digits without leading zeros is always the larger number
+                diff = digitsA.length() != digitsB.length() ? digitsA.length() - digitsB.length() : digitsA.compareTo(digitsB);
+            } else {
+                diff = ((CollationKey) partA).compareTo((CollationKey) partB);
+            }
+            if(diff != 0)
+                return diff;
+        }
+        return a.length - b.length;
+    }
+
+    // the collation key of a whole name, or the parts of a name compared naturally
+    private static final class NameKey implements Comparable<NameKey> {
+        private final CollationKey key;
+        private final Object[] parts;
+
+        private NameKey(CollationKey key, Object[] parts) {
+            this.key = key;
+            this.parts = parts;
+        }
+
+        @Override
+        public int compareTo(NameKey other) {
+            return parts != null ? compareNatural(parts, other.parts) : key.compareTo(other.key);
+        }
+    }
+
+    // the precomputed sort key of a single row
+    private final class RowKey implements Comparable<RowKey> {
+        private final DirectoryListing.View view;
+        private final int slot;
+        private final boolean traversable;
+        private final long value;
+        private final NameKey name;
+
+        private RowKey(DirectoryListing.View view, int slot, boolean traversable, long value, NameKey name) {
+            this.view = view;
+            this.slot = slot;
+            this.traversable = traversable;
+            this.value = value;
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(RowKey other) {
+            if(traversable != other.traversable)
+                return traversable ? -1 : 1;
+            int diff = Long.compare(value, other.value);
+            if(diff == 0)
+                diff = name.compareTo(other.name);
+            if(!ascending)
+                diff = -diff;
+            // names the collator sees as equal still need a fixed order, or rows would swap places between sorts
+            return diff != 0 ? diff : view.compareNames(slot, other.slot);
+        }
+    }
+}
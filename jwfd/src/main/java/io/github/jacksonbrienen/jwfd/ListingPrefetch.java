@@ -0,0 +1,277 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileSystemView;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Directories listed ahead of the dialog that will show them, so a dialog opened shortly after a prefetch shows its
+ * directory at once instead of listing it.<br>
+ * A prefetch lists the directory, filters and sorts it the way a file dialog with the same filter would, and reads the
+ * display attributes of the first rows, all on a single background thread. The result is kept for a short time, and is
+ * handed to the first <code>ListingDirectoryModel</code> that lists the same directory, which then owns it.<br>
+ * A prefetched listing is only used if the directory has not been modified since it was listed, and the prefetches kept
+ * are limited to a total number of entries, dropping the oldest first, so prefetches that are never used cost little.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see ListingDirectoryModel
+ */
+final class ListingPrefetch {
+
+    // how long a prefetch is kept once it is done
+    private static final long TIME_TO_LIVE = TimeUnit.SECONDS.toNanos(30);
+    // the most entries kept by every prefetch together, a listing larger than this is not kept at all
+    private static final int ENTRY_LIMIT = 200_000;
+    // how many of the first rows have their display attributes read, the rows a dialog shows when it opens and those read ahead of them
+    private static final int WARM_ROWS = 2 * LazyFileView.LOOK_AHEAD;
+    // the prefetching thread ends once it has been idle this long
+    private static final long IDLE_SECONDS = 5;
+
+    private static final ThreadPoolExecutor PREFETCHER;
+    // the prefetches by directory, oldest first, guarded by itself
+    private static final Map<File, CompletableFuture<Prefetched>> PREFETCHED = new LinkedHashMap<>();
+
+    static {
+        PREFETCHER = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "JWFD Prefetch Thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        PREFETCHER.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * A directory listed, filtered, and sorted ahead of a dialog.
+     */
+    static final class Prefetched {
+        private final DirectoryListing listing;
+        private final DirectoryListing.View view;
+        private final int[] rows;
+        private final NameIndex index;
+        private final FileFilter filter;
+        private final ListingOrder order;
+        private final Map<File, LazyFileView.Attributes> attributes;
+        private final FileTime modified;
+        private final long expires;
+
+        private Prefetched(DirectoryListing listing, DirectoryListing.View view, int[] rows, NameIndex index, FileFilter filter,
+                           ListingOrder order, Map<File, LazyFileView.Attributes> attributes, FileTime modified) {
+            this.listing = listing;
+            this.view = view;
+            this.rows = rows;
+            this.index = index;
+            this.filter = filter;
+            this.order = order;
+            this.attributes = attributes;
+            this.modified = modified;
+            expires = System.nanoTime() + TIME_TO_LIVE;
+        }
+
+        DirectoryListing getListing() {
+            return listing;
+        }
+
+        DirectoryListing.View getView() {
+            return view;
+        }
+
+        /**
+         * @return the slots of the view shown by a file dialog with the filter and order of the prefetch, in order.
+         */
+        int[] getRows() {
+            return rows;
+        }
+
+        NameIndex getIndex() {
+            return index;
+        }
+
+        FileFilter getFilter() {
+            return filter;
+        }
+
+        ListingOrder getOrder() {
+            return order;
+        }
+
+        /**
+         * @return the display attributes read for the first rows.
+         */
+        Map<File, LazyFileView.Attributes> getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * Tests if the listing is still the contents of the directory. Entries modified in place are not noticed,
+         * as they do not modify the directory itself.
+         * @return true if the prefetch has not expired, and the directory has not been modified since it was listed.
+         */
+        boolean isCurrent() {
+            if(System.nanoTime() - expires > 0)
+                return false;
+            try {
+                return modified.equals(Files.getLastModifiedTime(listing.getPath()));
+            } catch (IOException | SecurityException e) {
+                return false;
+            }
+        }
+
+        private int getCount() {
+            return view.getCount();
+        }
+    }
+
+    private ListingPrefetch() {}
+
+    /**
+     * Lists a directory in the background for a dialog that is about to be shown. Does nothing if the directory is
+     * being prefetched, or was prefetched and has not been modified since.
+     * @param directory Finds the directory to list, called on the prefetching thread, may return null to prefetch nothing.
+     * @param filter Finds the filter the dialog is shown with in the directory, called on the prefetching thread.
+     * @param order The order the dialog is shown in.
+     */
+    static void prefetch(Supplier<File> directory, Function<File, FileFilter> filter, ListingOrder order) {
+        PREFETCHER.execute(() -> {
+            File dir = directory.get();
+            if(dir == null)
+                return;
+            CompletableFuture<Prefetched> future = new CompletableFuture<>();
+            synchronized(PREFETCHED) {
+                expire();
+                // a directory modified since it was prefetched is listed again
+                CompletableFuture<Prefetched> existing = PREFETCHED.get(dir);
+                if(existing != null && (!existing.isDone() || existing.getNow(null) != null && existing.getNow(null).isCurrent()))
+                    return;
+                PREFETCHED.put(dir, future);
+            }
+            Prefetched prefetched = null;
+            try {
+                prefetched = list(dir, filter.apply(dir), order);
+            } catch (RuntimeException e) {
+                // a directory that cannot be prefetched is listed by the dialog itself
+            } finally {
+                future.complete(prefetched);
+                synchronized(PREFETCHED) {
+                    if(prefetched == null)
+                        PREFETCHED.remove(dir, future);
+                    else
+                        limit();
+                }
+            }
+        });
+    }
+
+    /**
+     * Takes the prefetch of a directory, waiting for it if it is still being listed. A prefetch is only ever taken once.
+     * @param directory The directory being listed.
+     * @return the prefetch of the directory, or null if it was not prefetched, has expired, or was modified since.
+     * @throws InterruptedException If the thread is interrupted while waiting for the prefetch.
+     */
+    static Prefetched take(File directory) throws InterruptedException {
+        CompletableFuture<Prefetched> future;
+        synchronized(PREFETCHED) {
+            future = PREFETCHED.get(directory);
+        }
+        if(future == null)
+            return null;
+        Prefetched prefetched;
+        try {
+            prefetched = future.get();
+        } catch (ExecutionException e) {
+            return null;
+        }
+        synchronized(PREFETCHED) {
+            // another dialog of the same directory took it first
+            if(!PREFETCHED.remove(directory, future))
+                return null;
+        }
+        return prefetched != null && prefetched.isCurrent() ? prefetched : null;
+    }
+
+    // lists, filters, and sorts a directory as a ListingDirectoryModel of the default FileSystemView would
+    private static Prefetched list(File directory, FileFilter filter, ListingOrder order) {
+        FileSystemView fsv = FileSystemView.getFileSystemView();
+        Path path = DirectoryListing.toPath(fsv, directory);
+        if(path == null)
+            return null;
+        DirectoryListing listing;
+        FileTime modified;
+        try {
+            // read before listing, so a change made while listing makes the prefetch out of date
+            modified = Files.getLastModifiedTime(path);
+            listing = DirectoryListing.load(fsv, directory, path);
+        } catch (IOException | SecurityException | InterruptedException e) {
+            return null;
+        }
+        // a directory that could not be read through its path cannot be checked for changes
+        if(listing.getPath() == null)
+            return null;
+        DirectoryListing.View view = listing.view();
+        if(view.getCount() > ENTRY_LIMIT)
+            return null;
+        int[] rows = ListingDirectoryModel.select(view, order, filter);
+        NameIndex index = NameIndex.build(view, rows);
+        Map<File, LazyFileView.Attributes> attributes = new HashMap<>();
+        for(int i = 0; i < Math.min(rows.length, WARM_ROWS); i++) {
+            File f = view.file(rows[i]);
+            try {
+                attributes.put(f, LazyFileView.Attributes.read(fsv, f));
+            } catch (RuntimeException e) {
+                // left for the dialog to read
+            }
+        }
+        return new Prefetched(listing, view, rows, index, filter, order, Collections.unmodifiableMap(attributes), modified);
+    }
+
+    // drops the prefetches that expired, must hold PREFETCHED
+    private static void expire() {
+        long now = System.nanoTime();
+        for(Iterator<CompletableFuture<Prefetched>> it = PREFETCHED.values().iterator(); it.hasNext();) {
+            Prefetched prefetched = it.next().getNow(null);
+            if(prefetched != null && now - prefetched.expires > 0)
+                it.remove();
+        }
+    }
+
+    // drops the oldest prefetches until the rest are within the entry limit, must hold PREFETCHED
+    private static void limit() {
+        expire();
+        long count = 0;
+        for(CompletableFuture<Prefetched> future : PREFETCHED.values()) {
+            Prefetched prefetched = future.getNow(null);
+            if(prefetched != null)
+                count += prefetched.getCount();
+        }
+        for(Iterator<CompletableFuture<Prefetched>> it = PREFETCHED.values().iterator(); it.hasNext() && count > ENTRY_LIMIT;) {
+            Prefetched prefetched = it.next().getNow(null);
+            if(prefetched != null) {
+                count -= prefetched.getCount();
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import javax.swing.*;
+import javax.swing.table.TableColumn;
+import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The row sorter of the details view of <code>JFileDialog</code>.<br>
+ * Rather than sorting the rows of the table on the event dispatch thread, a click on a column header changes the order
+ * of the <code>ListingDirectoryModel</code> itself, which sorts in the background and replaces its rows at once.
+ * The rows of the table are always in the order of the model, so this sorter never maps one index to another, and the
+ * list view shows the same order as the details view.<br>
+ * The name, size and date columns can be sorted, other columns provided by the Windows shell cannot. A column is known
+ * by the header the file chooser gave it from the title of its <code>ShellFolderColumnInfo</code>, or else by the
+ * class the table model declares for it, never by the values it happens to show.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see ListingOrder
+ */
+final class ListingRowSorter extends RowSorter<TableModel> {
+
+    // the file name is always the first column of the details view
+    private static final int NAME_COLUMN = 0;
+
+    private final JTable table;
+    private final TableModel model;
+    private final ListingDirectoryModel directoryModel;
+    private List<SortKey> sortKeys = Collections.emptyList();
+
+    /**
+     * Constructs a new <code>ListingRowSorter</code>.
+     * @param table The table of the details view.
+     * @param directoryModel The directory model the table shows.
+     */
+    ListingRowSorter(JTable table, ListingDirectoryModel directoryModel) {
+        this.table = table;
+        model = table.getModel();
+        this.directoryModel = directoryModel;
+    }
+
+    @Override
+    public TableModel getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        ListingOrder.Key key = keyOf(table, column);
+        if(key == null)
+            return;
+        boolean ascending = sortKeys.isEmpty() || sortKeys.get(0).getColumn() != column
+                || sortKeys.get(0).getSortOrder() != SortOrder.ASCENDING;
+        setSortKeys(Collections.singletonList(new SortKey(column, ascending ? SortOrder.ASCENDING : SortOrder.DESCENDING)));
+    }
+
+    // indices are not range checked, as JTable converts its old selection after the model has already changed size
+    @Override
+    public int convertRowIndexToModel(int index) {
+        return index;
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        return index;
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> old = sortKeys;
+        if(keys == null || keys.isEmpty()) {
+            sortKeys = Collections.emptyList();
+            directoryModel.setOrder(ListingOrder.DEFAULT.withNatural(directoryModel.getOrder().isNatural()));
+        } else {
+            // only the first key is used, the model breaks ties between rows by name
+            SortKey first = keys.get(0);
+            ListingOrder.Key key = keyOf(table, first.getColumn());
+            if(key == null || first.getSortOrder() == SortOrder.UNSORTED)
+                return;
+            sortKeys = Collections.singletonList(first);
+            directoryModel.setOrder(directoryModel.getOrder().withKey(key, first.getSortOrder() == SortOrder.ASCENDING));
+        }
+        if(!old.equals(sortKeys))
+            fireSortOrderChanged();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    // the rows always follow the order of the model, so changes to the model need no mapping
+    @Override
+    public void modelStructureChanged() {}
+
+    @Override
+    public void allRowsChanged() {}
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {}
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {}
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {}
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {}
+
+    /**
+     * Finds what a column of the details view shows.
+     * @param table The table of the details view.
+     * @param column The index of the column in the table model.
+     * @return the key the column is sorted by, or null if the column cannot be sorted.
+     */
+    static ListingOrder.Key keyOf(JTable table, int column) {
+        if(column == NAME_COLUMN)
+            return ListingOrder.Key.NAME;
+        if(column < 0 || column >= table.getModel().getColumnCount())
+            return null;
+        // the file chooser heads its columns with the text the look and feel has for the title of their ShellFolderColumnInfo
+        Object header = header(table.getColumnModel(), column);
+        if(header != null) {
+            if(header.equals(UIManager.getString("FileChooser.fileSizeHeaderText", table.getLocale())))
+                return ListingOrder.Key.SIZE;
+            if(header.equals(UIManager.getString("FileChooser.fileDateHeaderText", table.getLocale())))
+                return ListingOrder.Key.DATE;
+        }
+        Class<?> type = table.getModel().getColumnClass(column);
+        if(Number.class.isAssignableFrom(type))
+            return ListingOrder.Key.SIZE;
+        if(Date.class.isAssignableFrom(type))
+            return ListingOrder.Key.DATE;
+        return null;
+    }
+
+    // the header of the column showing a column of the table model, the chooser replaces the column model as its columns change
+    private static Object header(TableColumnModel columns, int column) {
+        for(int i = 0; i < columns.getColumnCount(); i++) {
+            TableColumn c = columns.getColumn(i);
+            if(c.getModelIndex() == column)
+                return c.getHeaderValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DocumentFilter;
+import javax.swing.text.JTextComponent;
+import java.io.File;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Completes the file name field of <code>JFileDialog</code> as it is typed, with the first name in the current directory
+ * starting with the typed text.<br>
+ * The rest of the completed name is selected, so typing on replaces it, and deleting removes it. Names are looked up
+ * in the <code>NameIndex</code> of the directory model, so only names shown with the current filter are completed.
+ * Text set by the chooser itself, multiple quoted names, and paths are not completed.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see NameIndex
+ */
+final class NameCompleter extends DocumentFilter {
+
+    private final JTextComponent field;
+    private final Supplier<ListingDirectoryModel> model;
+    private boolean suspended;
+
+    /**
+     * Constructs a new <code>NameCompleter</code>, which must then be set as the filter of the document of the field.
+     * @param field The file name field.
+     * @param model Supplies the current model of the chooser, or null if it has none.
+     */
+    NameCompleter(JTextComponent field, Supplier<ListingDirectoryModel> model) {
+        this.field = field;
+        this.model = model;
+    }
+
+    /**
+     * @param suspended True while the chooser sets the text of the field, which is not completed.
+     */
+    void setSuspended(boolean suspended) {
+        this.suspended = suspended;
+    }
+
+    @Override
+    public void insertString(FilterBypass fb, int offset, String string, AttributeSet attr) throws BadLocationException {
+        super.insertString(fb, offset, string, attr);
+        if(string != null && !string.isEmpty())
+            complete(fb, offset + string.length());
+    }
+
+    @Override
+    public void replace(FilterBypass fb, int offset, int length, String text, AttributeSet attrs) throws BadLocationException {
+        super.replace(fb, offset, length, text, attrs);
+        if(text != null && !text.isEmpty())
+            complete(fb, offset + text.length());
+    }
+
+    // completes the text if it was typed at its end
+    private void complete(FilterBypass fb, int end) throws BadLocationException {
+        if(suspended || end != fb.getDocument().getLength() || !field.isFocusOwner())
+            return;
+        ListingDirectoryModel current = model.get();
+        if(current == null)
+            return;
+        String prefix = fb.getDocument().getText(0, end);
+        if(prefix.indexOf('"') >= 0 || prefix.indexOf('/') >= 0 || prefix.indexOf(File.separatorChar) >= 0)
+            return;
+        List<String> names = current.complete(prefix, 1);
+        if(names.isEmpty() || names.get(0).length() == prefix.length())
+            return;
+        // the typed text is replaced too, so the completed name keeps its own case
+        String name = names.get(0);
+        fb.replace(0, end, name, null);
+        field.setCaretPosition(name.length());
+        field.moveCaretPosition(end);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * The rows of a <code>ListingDirectoryModel</code> sorted by name ignoring case, to find the names starting with a
+ * prefix by binary search for completing names as they are typed.<br>
+ * The index holds slots of a listing, and is read through a view of that listing, so it is built without creating a
+ * single name. It is built in the background along with the rows, and kept current one row at a time as the watcher
+ * reports changes. After being built, an index is only used on the event dispatch thread.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see ListingDirectoryModel#complete(String, int)
+ */
+final class NameIndex {
+
+    // indexes with fewer slots than this are sorted on the calling thread
+    private static final int PARALLEL_THRESHOLD = 8192;
+    // runs shorter than this are sorted by insertion rather than merged
+    private static final int INSERTION_THRESHOLD = 32;
+
+    private int[] slots;
+    private int size;
+
+    private NameIndex(int[] slots) {
+        this.slots = slots;
+        size = slots.length;
+    }
+
+    /**
+     * Builds the index of the rows of a model.
+     * @param view A view of the listing the rows are slots of.
+     * @param rows The rows of the model, these are not changed.
+     * @return an index of the rows.
+     */
+    static NameIndex build(DirectoryListing.View view, int[] rows) {
+        int[] slots = rows.clone();
+        sort(view, slots, new int[slots.length], 0, slots.length);
+        return new NameIndex(slots);
+    }
+
+    // merge sorts a range of slots by name, sorting both halves of large ranges in parallel, the buffer holds a copy of the range while merging
+    private static void sort(DirectoryListing.View view, int[] slots, int[] buffer, int from, int to) {
+        if(to - from < INSERTION_THRESHOLD) {
+            for(int i = from + 1; i < to; i++) {
+                int slot = slots[i];
+                int j = i;
+                for(; j > from && view.compareNames(slots[j - 1], slot) > 0; j--)
+                    slots[j] = slots[j - 1];
+                slots[j] = slot;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        if(to - from >= PARALLEL_THRESHOLD) {
+            ForkJoinTask.invokeAll(ForkJoinTask.adapt(() -> sort(view, slots, buffer, from, middle)),
+                    ForkJoinTask.adapt(() -> sort(view, slots, buffer, middle, to)));
+        } else {
+            sort(view, slots, buffer, from, middle);
+            sort(view, slots, buffer, middle, to);
+        }
+        // already in order, as with a listing read in name order
+        if(view.compareNames(slots[middle - 1], slots[middle]) <= 0)
+            return;
+        System.arraycopy(slots, from, buffer, from, to - from);
+        int left = from, right = middle;
+        for(int i = from; i < to; i++) {
+            if(right >= to || left < middle && view.compareNames(buffer[left], buffer[right]) <= 0)
+                slots[i] = buffer[left++];
+            else
+                slots[i] = buffer[right++];
+        }
+    }
+
+    /**
+     * Adds a slot to the index, if it is not in it yet.
+     * @param view A view of the listing holding the slot.
+     * @param slot The slot to add.
+     */
+    void add(DirectoryListing.View view, int slot) {
+        int index = search(view, slot);
+        if(index >= 0)
+            return;
+        index = -index - 1;
+        if(size == slots.length)
+            slots = Arrays.copyOf(slots, Math.max(16, size + (size >> 1)));
+        System.arraycopy(slots, index, slots, index + 1, size++ - index);
+        slots[index] = slot;
+    }
+
+    /**
+     * Removes a slot from the index, if it is in it.
+     * @param view A view of the listing holding the slot.
+     * @param slot The slot to remove.
+     */
+    void remove(DirectoryListing.View view, int slot) {
+        int index = search(view, slot);
+        if(index >= 0)
+            System.arraycopy(slots, index + 1, slots, index, --size - index);
+    }
+
+    /**
+     * Replaces a slot with a newer slot of the same name, keeping its place in the index.
+     * @param view A view of the listing holding both slots.
+     * @param old The slot to replace.
+     * @param slot The slot replacing it.
+     */
+    void replace(DirectoryListing.View view, int old, int slot) {
+        int index = search(view, old);
+        if(index >= 0)
+            slots[index] = slot;
+        else
+            add(view, slot);
+    }
+
+    /**
+     * Finds the names in the index starting with a prefix.
+     * @param view A view of the listing the index is of.
+     * @param prefix The prefix of the names, compared ignoring case.
+     * @param limit The largest number of names returned.
+     * @return the names starting with the prefix ignoring case, sorted ignoring case, shorter names first.
+     */
+    List<String> complete(DirectoryListing.View view, String prefix, int limit) {
+        // the first name not sorted before the prefix, every name starting with it follows
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(view.compareToPrefix(slots[mid], prefix) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        List<String> names = new ArrayList<>(Math.min(limit, 16));
+        for(int i = low; i < size && names.size() < limit && view.compareToPrefix(slots[i], prefix) == 0; i++)
+            names.add(view.name(slots[i]));
+        return names;
+    }
+
+    // finds the index of a slot by binary search on its name, or -(insertion point) - 1 if it is not in the index
+    private int search(DirectoryListing.View view, int slot) {
+        int low = 0;
+        int high = size - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            int diff = view.compareNames(slots[mid], slot);
+            if(diff < 0)
+                low = mid + 1;
+            else if(diff > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+}
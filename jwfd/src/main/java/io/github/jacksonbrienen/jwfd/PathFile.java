@@ -0,0 +1,376 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A <code>File</code> for a <code>Path</code> of a file system other than the default one, such as an entry of a zip
+ * archive, so it can be shown and chosen in a <code>JFileChooser</code>.<br>
+ * <code>JFileChooser</code> only works with <code>File</code>s, whose methods all go to the default file system
+ * through their path <code>String</code>. Every method a chooser uses is answered through the wrapped
+ * <code>Path</code> instead, and the path <code>String</code> of the <code>File</code> is the <code>URI</code> of the
+ * path, which only serves to tell files apart.<br>
+ * Files inside an archive are read only, the archive is never written to. The root of an archive is named after the
+ * archive, and has the directory holding the archive as its parent, so the chooser shows the archive as a folder.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see ArchiveFileSystemView
+ */
+final class PathFile extends File {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Path path;
+    // the archive this file is inside of, null for a file system given by the caller
+    private final File archive;
+    private transient volatile BasicFileAttributes attributes;
+
+    /**
+     * Constructs a new <code>PathFile</code>.
+     * @param path The path of the file, which must be absolute.
+     * @param archive The archive file the file system of the path was opened from, or null if it was not opened from an archive.
+     */
+    PathFile(Path path, File archive) {
+        super(path.toUri().toString());
+        this.path = path;
+        this.archive = archive;
+    }
+
+    /**
+     * Creates a <code>File</code> for a path, of any file system.
+     * @param path The path to create a <code>File</code> for.
+     * @return a plain <code>File</code> for a path of the default file system, a <code>PathFile</code> for any other path.
+     */
+    static File of(Path path) {
+        if(path.getFileSystem() == FileSystems.getDefault())
+            return path.toFile();
+        return new PathFile(path.toAbsolutePath(), null);
+    }
+
+    /**
+     * @return the archive file the file system of this file was opened from, or null if it was not opened from an archive.
+     */
+    File getArchive() {
+        return archive;
+    }
+
+    /**
+     * @param child The name or relative path of a file in this directory.
+     * @return the file in this directory, in the same file system.
+     */
+    PathFile resolve(String child) {
+        return new PathFile(path.resolve(child), archive);
+    }
+
+    /**
+     * @param sibling The name of a file in the same directory as this file.
+     * @return the file in the same directory, in the same file system.
+     */
+    PathFile resolveSibling(String sibling) {
+        return new PathFile(path.resolveSibling(sibling), archive);
+    }
+
+    @Override
+    public Path toPath() {
+        return path;
+    }
+
+    @Override
+    public URI toURI() {
+        return path.toUri();
+    }
+
+    @Override
+    public String getName() {
+        Path name = path.getFileName();
+        if(name != null)
+            return trimSeparator(name.toString());
+        // the root of an archive is named after the archive
+        return archive != null ? archive.getName() : "";
+    }
+
+    @Override
+    public String getParent() {
+        File parent = getParentFile();
+        return parent == null ? null : parent.getPath();
+    }
+
+    @Override
+    public File getParentFile() {
+        Path parent = path.getParent();
+        if(parent != null)
+            return new PathFile(parent, archive);
+        // the parent of the root of an archive is the directory holding the archive
+        return archive != null ? archive.getParentFile() : null;
+    }
+
+    @Override
+    public boolean isAbsolute() {
+        return true;
+    }
+
+    @Override
+    public String getAbsolutePath() {
+        return getPath();
+    }
+
+    @Override
+    public File getAbsoluteFile() {
+        return this;
+    }
+
+    @Override
+    public String getCanonicalPath() {
+        return getPath();
+    }
+
+    @Override
+    public File getCanonicalFile() {
+        return this;
+    }
+
+    @Override
+    public boolean exists() {
+        // not cached, as the selection approvers of JFileDialog depend on it
+        return Files.exists(path);
+    }
+
+    @Override
+    public boolean isDirectory() {
+        BasicFileAttributes read = attributes();
+        return read != null && read.isDirectory();
+    }
+
+    @Override
+    public boolean isFile() {
+        BasicFileAttributes read = attributes();
+        return read != null && read.isRegularFile();
+    }
+
+    @Override
+    public boolean isHidden() {
+        try {
+            return path.getFileName() != null && Files.isHidden(path);
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public long length() {
+        BasicFileAttributes read = attributes();
+        return read == null ? 0L : read.size();
+    }
+
+    @Override
+    public long lastModified() {
+        BasicFileAttributes read = attributes();
+        return read == null ? 0L : read.lastModifiedTime().toMillis();
+    }
+
+    @Override
+    public boolean canRead() {
+        return Files.isReadable(path);
+    }
+
+    @Override
+    public boolean canWrite() {
+        return archive == null && Files.isWritable(path);
+    }
+
+    @Override
+    public boolean canExecute() {
+        return Files.isExecutable(path);
+    }
+
+    @Override
+    public String[] list() {
+        List<Path> entries = entries();
+        if(entries == null)
+            return null;
+        String[] names = new String[entries.size()];
+        for(int i = 0; i < names.length; i++)
+            names[i] = trimSeparator(entries.get(i).getFileName().toString());
+        return names;
+    }
+
+    @Override
+    public String[] list(FilenameFilter filter) {
+        String[] names = list();
+        if(names == null || filter == null)
+            return names;
+        List<String> accepted = new ArrayList<>(names.length);
+        for(String name : names)
+            if(filter.accept(this, name))
+                accepted.add(name);
+        return accepted.toArray(new String[0]);
+    }
+
+    @Override
+    public File[] listFiles() {
+        return listFiles((FileFilter) null);
+    }
+
+    @Override
+    public File[] listFiles(FilenameFilter filter) {
+        return listFiles(f -> filter == null || filter.accept(this, f.getName()));
+    }
+
+    @Override
+    public File[] listFiles(FileFilter filter) {
+        List<Path> entries = entries();
+        if(entries == null)
+            return null;
+        List<File> files = new ArrayList<>(entries.size());
+        for(Path entry : entries) {
+            File file = new PathFile(entry, archive);
+            if(filter == null || filter.accept(file))
+                files.add(file);
+        }
+        return files.toArray(new File[0]);
+    }
+
+    @Override
+    public boolean createNewFile() throws IOException {
+        if(archive != null)
+            throw new IOException("The archive " + archive + " is read only");
+        if(exists())
+            return false;
+        Files.createFile(path);
+        return true;
+    }
+
+    @Override
+    public boolean delete() {
+        try {
+            return archive == null && Files.deleteIfExists(path);
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void deleteOnExit() {
+        // only files of the default file system can be deleted on exit
+    }
+
+    @Override
+    public boolean mkdir() {
+        if(archive != null)
+            return false;
+        try {
+            Files.createDirectory(path);
+            return true;
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean mkdirs() {
+        if(archive != null || exists())
+            return false;
+        try {
+            Files.createDirectories(path);
+            return true;
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    // the methods below would change a file of the default file system named after the path String, so they do nothing
+
+    @Override
+    public boolean renameTo(File dest) {
+        return false;
+    }
+
+    @Override
+    public boolean setLastModified(long time) {
+        return false;
+    }
+
+    @Override
+    public boolean setReadOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean setWritable(boolean writable, boolean ownerOnly) {
+        return false;
+    }
+
+    @Override
+    public boolean setReadable(boolean readable, boolean ownerOnly) {
+        return false;
+    }
+
+    @Override
+    public boolean setExecutable(boolean executable, boolean ownerOnly) {
+        return false;
+    }
+
+    @Override
+    public long getTotalSpace() {
+        return 0L;
+    }
+
+    @Override
+    public long getFreeSpace() {
+        return 0L;
+    }
+
+    @Override
+    public long getUsableSpace() {
+        return 0L;
+    }
+
+    // the attributes are read once, a file listed by a chooser is asked for several of them in a row
+    private BasicFileAttributes attributes() {
+        BasicFileAttributes read = attributes;
+        if(read == null) {
+            try {
+                attributes = read = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException | SecurityException e) {
+                return null;
+            }
+        }
+        return read;
+    }
+
+    // the entries of this directory, or null if it cannot be listed
+    private List<Path> entries() {
+        List<Path> entries = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for(Path entry : stream)
+                entries.add(entry);
+            return entries;
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    // zip file systems end the names of directories with a separator
+    private String trimSeparator(String name) {
+        String separator = path.getFileSystem().getSeparator();
+        return name.length() > separator.length() && name.endsWith(separator) ? name.substring(0, name.length() - separator.length()) : name;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The paths selected in an open multi file dialog, as an unmodifiable <code>List</code> of <code>Path</code>s.<br>
+ * A selection holds every directory once, and the names of the selected files packed together, rather than one full
+ * path for every file. A <code>Path</code> is only created when it is read from the list, and is not kept, so a
+ * selection of many thousands of files stays small for as long as it is held.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see JWindowsFileDialog
+ */
+public final class PathSelection extends AbstractList<Path> implements RandomAccess {
+
+    private final Path[] directories;
+    // the names of every selected file back to back, name i ends at ends[i] and starts where name i - 1 ends
+    private final char[] names;
+    private final int[] ends;
+    // the index of the directory of every name, null when every name is in the first directory
+    private final int[] directoryOf;
+
+    private PathSelection(Path[] directories, char[] names, int[] ends, int[] directoryOf) {
+        this.directories = directories;
+        this.names = names;
+        this.ends = ends;
+        this.directoryOf = directoryOf;
+    }
+
+    /**
+     * Creates the selection of a <code>JFileChooser</code>.
+     * @param files The selected files, which may be <code>PathFile</code>s of another file system.
+     * @return a selection of the absolute paths of the files, in the same order.
+     */
+    static PathSelection of(File[] files) {
+        Builder builder = new Builder(files.length);
+        for(File file : files)
+            builder.add(file.toPath().toAbsolutePath());
+        return builder.build();
+    }
+
+    /**
+     * Creates a selection from the full paths returned by a dialog.
+     * @param paths The selected paths, of the default file system.
+     * @return a selection of the absolute paths, in the same order.
+     */
+    static PathSelection of(String[] paths) {
+        Builder builder = new Builder(paths.length);
+        for(String path : paths)
+            builder.add(Paths.get(path).toAbsolutePath());
+        return builder.build();
+    }
+
+    /**
+     * Creates a selection from the records returned by the native dialog.<br>
+     * Every record ends with a null character. A record holding the separator is a directory, any other record is the
+     * name of a file in the last directory, as names can never hold the separator.
+     * @param records The records of the selection.
+     * @param separator The name separator of the file system the records are of.
+     * @return a selection of the paths of the records, in the same order.
+     */
+    static PathSelection decode(String records, char separator) {
+        Builder builder = new Builder(16);
+        Path directory = Paths.get("");
+        int start = 0;
+        while(start < records.length()) {
+            int end = records.indexOf('\0', start);
+            if(end < 0)
+                end = records.length();
+            String record = records.substring(start, end);
+            if(record.indexOf(separator) >= 0)
+                directory = Paths.get(record);
+            else
+                builder.add(directory, record);
+            start = end + 1;
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param index The index of a selected path.
+     * @return the selected path at the index, this creates a new <code>Path</code> on every call.
+     */
+    @Override
+    public Path get(int index) {
+        return getDirectory(index).resolve(getName(index));
+    }
+
+    @Override
+    public int size() {
+        return ends.length;
+    }
+
+    /**
+     * @param index The index of a selected path.
+     * @return the name of the selected path at the index, without its directory.
+     */
+    public String getName(int index) {
+        checkIndex(index);
+        int start = index == 0 ? 0 : ends[index - 1];
+        return new String(names, start, ends[index] - start);
+    }
+
+    /**
+     * @param index The index of a selected path.
+     * @return the directory of the selected path at the index.
+     */
+    public Path getDirectory(int index) {
+        checkIndex(index);
+        return directories[directoryOf == null ? 0 : directoryOf[index]];
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= ends.length)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + ends.length);
+    }
+
+    // collects names directory by directory, storing a directory again only when it differs from the last one
+    private static final class Builder {
+        private final List<Path> directories = new ArrayList<>();
+        private char[] names;
+        private int length;
+        private int[] ends;
+        private int[] directoryOf;
+        private int count;
+
+        private Builder(int capacity) {
+            names = new char[capacity * 16];
+            ends = new int[capacity];
+            directoryOf = new int[capacity];
+        }
+
+        private void add(Path absolute) {
+            Path directory = absolute.getParent();
+            // a root has no parent, it is kept as its own directory with an empty name
+            if(directory == null)
+                add(absolute, "");
+            else
+                add(directory, absolute.getFileName().toString());
+        }
+
+        private void add(Path directory, String name) {
+            int last = directories.size() - 1;
+            if(last < 0 || !directories.get(last).equals(directory)) {
+                directories.add(directory);
+                last++;
+            }
+            if(length + name.length() > names.length)
+                names = Arrays.copyOf(names, Math.max(names.length * 2, length + name.length()));
+            if(count == ends.length) {
+                ends = Arrays.copyOf(ends, Math.max(count * 2, 16));
+                directoryOf = Arrays.copyOf(directoryOf, ends.length);
+            }
+            name.getChars(0, name.length(), names, length);
+            length += name.length();
+            ends[count] = length;
+            directoryOf[count++] = last;
+        }
+
+        private PathSelection build() {
+            Path[] paths = directories.toArray(new Path[0]);
+            // a selection from a single directory needs no directory for each name
+            int[] of = paths.length > 1 ? Arrays.copyOf(directoryOf, count) : null;
+            return new PathSelection(paths, Arrays.copyOf(names, length), Arrays.copyOf(ends, count), of);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * The directories recently used in dialogs, kept per dialog context in a file, so dialogs start where the user last
+ * worked even after the application is restarted.<br>
+ * Each context, such as "export" or "import-images", keeps its own directories, most recent first. Using a directory
+ * moves it to the front, and the least recently used directory of a context is dropped once it holds more than its
+ * capacity. A store is given to a dialog with <code>DialogOptions.setRecentDirectories</code>.<br>
+ * The file is a line of text per directory, and is only read when a dialog first asks for its directories, and again
+ * after it changes. Every change locks the file, and reads it again before writing it, so several applications, or
+ * several copies of one, can share a file without losing each other's directories.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see DialogOptions#setRecentDirectories(RecentDirectories, String)
+ */
+public final class RecentDirectories {
+
+    /**
+     * How many directories each context keeps when no capacity is given.
+     */
+    public static final int DEFAULT_CAPACITY = 10;
+
+    // how long a dialog waits in total for its recent directories to be found to exist, as a directory on a
+    // disconnected network drive can take far longer than that to fail
+    private static final long START_TIMEOUT = 250;
+    // a file lock is held by the whole JVM, so the stores of one file in this JVM take turns through a shared monitor
+    private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
+    private static final ExecutorService CHECKER = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "JWFD Recent Directory Thread");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path file;
+    private final int capacity;
+    private final Object monitor;
+
+    // the directories of every context as last read, and the attributes of the file when it was read, guarded by monitor
+    private Map<String, List<Path>> contexts;
+    private Object stamp;
+
+    /**
+     * Constructs a new <code>RecentDirectories</code> stored in a file, keeping {@value #DEFAULT_CAPACITY} directories per context.
+     * @param file The file the directories are kept in, it is created when a directory is first added.
+     */
+    public RecentDirectories(Path file) {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new <code>RecentDirectories</code> stored in a file.
+     * @param file The file the directories are kept in, it is created when a directory is first added.
+     * @param capacity How many directories each context keeps.
+     * @throws IllegalArgumentException If the capacity is less than one.
+     */
+    public RecentDirectories(Path file, int capacity) {
+        if(capacity < 1)
+            throw new IllegalArgumentException("The capacity of recent directories must be at least one: " + capacity);
+        // normalized, so every spelling of the same file shares one monitor
+        this.file = file.toAbsolutePath().normalize();
+        this.capacity = capacity;
+        monitor = MONITORS.computeIfAbsent(this.file, f -> new Object());
+    }
+
+    /**
+     * Returns the recent directories of a context. These are not checked to still exist.
+     * @param context The context of the dialog, or null for the default context.
+     * @return an unmodifiable list of the directories of the context, most recent first, empty if the file cannot be read.
+     */
+    public List<Path> get(String context) {
+        String key = key(context);
+        synchronized(monitor) {
+            try {
+                refresh();
+            } catch (IOException e) {
+                return Collections.emptyList();
+            }
+            List<Path> directories = contexts.get(key);
+            return directories == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(directories));
+        }
+    }
+
+    /**
+     * Adds a directory to the front of a context, removing the least recently used directory if the context is full.
+     * @param context The context of the dialog, or null for the default context.
+     * @param directory The directory to add, which must be a path of the default file system.
+     * @throws IOException If the file cannot be read or written.
+     * @throws IllegalArgumentException If the directory is not of the default file system, or holds a line break or tab.
+     */
+    public void add(String context, Path directory) throws IOException {
+        String key = key(context);
+        if(directory.getFileSystem() != FileSystems.getDefault())
+            throw new IllegalArgumentException("Only directories of the default file system can be recent directories: " + directory);
+        Path absolute = directory.toAbsolutePath().normalize();
+        if(!isStorable(absolute.toString()))
+            throw new IllegalArgumentException("A recent directory cannot hold a line break or tab: " + directory);
+        update(contexts -> {
+            List<Path> directories = contexts.computeIfAbsent(key, k -> new ArrayList<>());
+            directories.remove(absolute);
+            directories.add(0, absolute);
+            while(directories.size() > capacity)
+                directories.remove(directories.size() - 1);
+        });
+    }
+
+    /**
+     * Removes every directory of a context.
+     * @param context The context of the dialog, or null for the default context.
+     * @throws IOException If the file cannot be read or written.
+     */
+    public void clear(String context) throws IOException {
+        String key = key(context);
+        update(contexts -> contexts.remove(key));
+    }
+
+    /**
+     * Finds the directory a dialog of a context starts in, the most recent of its directories that still exists.<br>
+     * Directories are checked in order for at most a short time in total, a directory that takes too long to check is
+     * treated as missing, along with every directory after it.
+     * @param context The context of the dialog, or null for the default context.
+     * @return the most recent existing directory of the context, or null if there is none.
+     */
+    Path findStart(String context) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_TIMEOUT);
+        for(Path directory : get(context)) {
+            Future<Boolean> exists = CHECKER.submit(() -> Files.isDirectory(directory));
+            try {
+                if(exists.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+                    return directory;
+            } catch (TimeoutException e) {
+                // the check is left to finish on its own, it cannot be interrupted while the file system is waiting
+                return null;
+            } catch (ExecutionException e) {
+                // a directory that cannot be checked is skipped
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // reads the file again if it changed since it was last read, must hold the monitor
+    private void refresh() throws IOException {
+        Object current;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            current = attributes.lastModifiedTime() + "/" + attributes.size();
+        } catch (NoSuchFileException e) {
+            contexts = new LinkedHashMap<>();
+            stamp = null;
+            return;
+        }
+        if(contexts != null && current.equals(stamp))
+            return;
+        // the lock is released as the channel is closed
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.lock(0, Long.MAX_VALUE, true);
+            contexts = parse(read(channel));
+        }
+        stamp = current;
+    }
+
+    // changes the directories while holding the lock of the file, reading it first so changes made by others are kept
+    private void update(Consumer<Map<String, List<Path>>> change) throws IOException {
+        synchronized(monitor) {
+            Path parent = file.getParent();
+            if(parent != null)
+                Files.createDirectories(parent);
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                channel.lock();
+                Map<String, List<Path>> read = parse(read(channel));
+                change.accept(read);
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(format(read));
+                channel.truncate(0);
+                channel.position(0);
+                while(bytes.hasRemaining())
+                    channel.write(bytes);
+                channel.force(false);
+                contexts = read;
+            }
+            // the next read compares against the file as written here
+            stamp = null;
+        }
+    }
+
+    private static String read(FileChannel channel) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+        while(bytes.hasRemaining())
+            if(channel.read(bytes, bytes.position()) < 0)
+                break;
+        bytes.flip();
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    // every line is a context and a directory separated by a tab, the lines of a context are most recent first
+    private static Map<String, List<Path>> parse(String text) {
+        Map<String, List<Path>> contexts = new LinkedHashMap<>();
+        for(String line : text.split("\n")) {
+            int tab = line.indexOf('\t');
+            if(tab < 0)
+                continue;
+            try {
+                contexts.computeIfAbsent(line.substring(0, tab), k -> new ArrayList<>()).add(Paths.get(line.substring(tab + 1)));
+            } catch (InvalidPathException ignored) {
+                // a line written by another system, or cut short, is dropped
+            }
+        }
+        return contexts;
+    }
+
+    private static String format(Map<String, List<Path>> contexts) {
+        StringBuilder text = new StringBuilder();
+        for(Map.Entry<String, List<Path>> context : contexts.entrySet())
+            for(Path directory : context.getValue())
+                text.append(context.getKey()).append('\t').append(directory).append('\n');
+        return text.toString();
+    }
+
+    /**
+     * @param context The context of a dialog, or null for the default context.
+     * @return the key the context is stored under.
+     * @throws IllegalArgumentException If the context holds a line break or tab.
+     */
+    static String key(String context) {
+        if(context == null)
+            return "";
+        if(!isStorable(context))
+            throw new IllegalArgumentException("A dialog context cannot hold a line break or tab: " + context);
+        return context;
+    }
+
+    private static boolean isStorable(String text) {
+        return text.indexOf('\n') < 0 && text.indexOf('\r') < 0 && text.indexOf('\t') < 0;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A file or folder selected in a dialog shown by <code>JWindowsFileDialog</code>, holding its <code>Path</code> and
+ * the <code>BasicFileAttributes</code> of the path.<br>
+ * Attributes are read the first time they are asked for, and then kept, so a selection that is only used by name
+ * never touches the file system. When <code>DialogOptions.setPrefetchAttributes</code> is set, the attributes of
+ * every selected file are instead read together, in parallel, as soon as the dialog returns.
+ * The attributes are those of the file at the time they were read, they are not updated if the file changes.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ * @see JWindowsFileDialog
+ * @see DialogOptions#setPrefetchAttributes(boolean)
+ */
+public final class SelectedFile {
+
+    private final Path path;
+    private volatile BasicFileAttributes attributes;
+
+    private SelectedFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Creates the result of a dialog returning a single path.
+     * @param path The path returned by the dialog, or null if the dialog was canceled.
+     * @param options The options of the dialog, may be null.
+     * @return a <code>SelectedFile</code> for the path, or null if the path is null.
+     */
+    static SelectedFile of(Path path, DialogOptions options) {
+        if(path == null)
+            return null;
+        SelectedFile file = new SelectedFile(path);
+        if(options != null && options.isPrefetchAttributes())
+            file.prefetch();
+        return file;
+    }
+
+    /**
+     * Creates the result of a dialog returning several paths, reading their attributes concurrently if prefetching is set.
+     * @param paths The paths returned by the dialog, or null if the dialog was canceled.
+     * @param options The options of the dialog, may be null.
+     * @return an unmodifiable list of a <code>SelectedFile</code> for each path, in the same order, or null if the paths are null.
+     */
+    static List<SelectedFile> of(List<Path> paths, DialogOptions options) {
+        if(paths == null)
+            return null;
+        List<SelectedFile> files = new ArrayList<>(paths.size());
+        for(Path path : paths)
+            files.add(new SelectedFile(path));
+        if(options != null && options.isPrefetchAttributes())
+            files.parallelStream().forEach(SelectedFile::prefetch);
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * @return the selected path.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the attributes of the selected path, reading them if they have not been read yet.
+     * @return the <code>BasicFileAttributes</code> of the selected path.
+     * @throws IOException If the attributes have not been read yet and cannot be read, for example as the file does not exist.
+     * A file chosen in a save dialog usually does not exist yet.
+     */
+    public BasicFileAttributes getAttributes() throws IOException {
+        BasicFileAttributes read = attributes;
+        if(read == null)
+            attributes = read = Files.readAttributes(path, BasicFileAttributes.class);
+        return read;
+    }
+
+    /**
+     * @return true if the attributes of the selected path have already been read,
+     * in which case <code>getAttributes</code> returns without touching the file system.
+     */
+    public boolean hasAttributes() {
+        return attributes != null;
+    }
+
+    /**
+     * @return the selected path as a <code>String</code>, the same <code>String</code> the show dialog methods return
+     * for a path of the default file system.
+     */
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+
+    // reads the attributes ahead of time, a path that cannot be read is left to fail when its attributes are asked for
+    private void prefetch() {
+        try {
+            getAttributes();
+        } catch (IOException | SecurityException ignored) {}
+    }
+}
@@ -181,6 +181,40 @@ final class WindowsFileDialog {
             return openMultipleDialog0(frame, title, path, filters);
       }
 
+      // true once the loaded natives were found to lack openMultipleCompactDialog0
+      private static volatile boolean compactMissing;
+
+      // the native function called by the openMultipleCompactDialog wrapper function
+      private static native String openMultipleCompactDialog0(Frame frame, String title, String path, String filters) throws JNIException, UnsatisfiedLinkError;
+
+      /**
+       * Opens a windows native open multiple file dialog with the given parameters, returning the selection without
+       * creating a <code>String</code> for every selected path. With natives that lack the compact dialog, the selection
+       * is built from the paths returned by the open multiple file dialog instead.
+       * @param frame The parent frame used as a relative component for modality.
+       * @param title The title of the shown dialog window.
+       * @param path The starting directory for the dialog.
+       * @param filters A list of filters to filter the files shown. These should be in the Windows filter format, and be a non-null value.
+       * @return The selected paths, null if no paths are selected.
+       * @throws JNIException If an error occurs while opening the File Dialog
+       */
+      static PathSelection openMultipleCompactDialog(Frame frame, String title, String path, String filters) throws JNIException, UnsatisfiedLinkError {
+            frame = validateFrame(frame);
+            title = validateTitle(title);
+            path = validatePath(path);
+            if(!compactMissing) {
+                  try {
+                        String records = openMultipleCompactDialog0(frame, title, path, filters);
+                        return records == null ? null : PathSelection.decode(records, '\\');
+                  } catch(UnsatisfiedLinkError e) {
+                        // natives built before the compact dialog existed only have the full path dialog
+                        compactMissing = true;
+                  }
+            }
+            String[] paths = openMultipleDialog0(frame, title, path, filters);
+            return paths == null || paths.length == 0 ? null : PathSelection.of(paths);
+      }
+
       private static native String openDirDialog0(Frame frame, String title, String path) throws JNIException, UnsatisfiedLinkError;
 
       /**
@@ -0,0 +1,90 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.swing.filechooser.FileSystemView;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ArchiveFileSystemViewTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File archive;
+    private ArchiveFileSystemView view;
+
+    @Before
+    public void setUp() throws Exception {
+        archive = folder.newFile("archive.zip");
+        try(OutputStream out = Files.newOutputStream(archive.toPath()); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("entry.txt"));
+            zip.write("inside".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        view = new ArchiveFileSystemView(FileSystemView.getFileSystemView());
+    }
+
+    @Test
+    public void enterOpensArchiveAtItsRoot() {
+        File root = view.enter(archive);
+        assertTrue(root instanceof PathFile);
+        assertTrue(root.toPath().getFileSystem().isOpen());
+        assertSame(root, view.enter(archive));
+        view.close(Collections.emptyList());
+    }
+
+    @Test
+    public void closeWithoutSelectionClosesEveryArchive() {
+        FileSystem fs = view.enter(archive).toPath().getFileSystem();
+        view.close(Collections.emptyList());
+        assertFalse(fs.isOpen());
+    }
+
+    @Test
+    public void closeKeepsArchiveOfSelection() throws Exception {
+        PathFile root = (PathFile) view.enter(archive);
+        File entry = root.resolve("entry.txt");
+        FileSystem fs = entry.toPath().getFileSystem();
+        view.close(Collections.singletonList(entry));
+        try {
+            assertTrue(fs.isOpen());
+            assertEquals("inside", new String(Files.readAllBytes(entry.toPath()), StandardCharsets.UTF_8));
+        } finally {
+            fs.close();
+        }
+    }
+
+    @Test
+    public void closedArchiveOpensAgainFromUri() throws Exception {
+        PathFile root = (PathFile) view.enter(archive);
+        URI uri = root.resolve("entry.txt").toURI();
+        // what the methods returning a String do, the caller is handed the URI alone
+        view.close(Collections.emptyList());
+        try(FileSystem fs = FileSystems.newFileSystem(uri, Collections.emptyMap())) {
+            assertEquals("inside", new String(Files.readAllBytes(Paths.get(uri)), StandardCharsets.UTF_8));
+        }
+    }
+}
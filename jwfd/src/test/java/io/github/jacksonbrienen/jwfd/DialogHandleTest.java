@@ -0,0 +1,98 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DialogHandleTest {
+
+    @Test
+    public void startsNotCancelled() {
+        assertFalse(new DialogHandle().isCancelled());
+    }
+
+    @Test
+    public void cancelRunsAttachedCloserOnce() {
+        DialogHandle handle = new DialogHandle();
+        AtomicInteger closed = new AtomicInteger();
+        assertFalse(handle.attach(closed::incrementAndGet));
+        handle.cancel();
+        handle.cancel();
+        assertTrue(handle.isCancelled());
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void cancelBeforeAttachIsReported() {
+        DialogHandle handle = new DialogHandle();
+        handle.cancel();
+        AtomicInteger closed = new AtomicInteger();
+        assertTrue(handle.attach(closed::incrementAndGet));
+        handle.cancel();
+        assertEquals(0, closed.get());
+    }
+
+    @Test
+    public void detachedCloserIsNotRun() {
+        DialogHandle handle = new DialogHandle();
+        AtomicInteger closed = new AtomicInteger();
+        handle.attach(closed::incrementAndGet);
+        handle.attach(null);
+        handle.cancel();
+        assertTrue(handle.isCancelled());
+        assertEquals(0, closed.get());
+    }
+
+    @Test
+    public void detachOnlyClearsOwnCloser() {
+        DialogHandle handle = new DialogHandle();
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        Runnable firstCloser = first::incrementAndGet;
+        handle.attach(firstCloser);
+        handle.attach(second::incrementAndGet);
+        // the first dialog closes while the second is still showing
+        handle.detach(firstCloser);
+        handle.cancel();
+        assertEquals(0, first.get());
+        assertEquals(1, second.get());
+    }
+
+    @Test
+    public void detachClearsAttachedCloser() {
+        DialogHandle handle = new DialogHandle();
+        AtomicInteger closed = new AtomicInteger();
+        Runnable closer = closed::incrementAndGet;
+        handle.attach(closer);
+        handle.detach(closer);
+        handle.cancel();
+        assertEquals(0, closed.get());
+    }
+
+    @Test
+    public void closerRunsOnCancellingThread() throws Exception {
+        DialogHandle handle = new DialogHandle();
+        Thread[] ran = new Thread[1];
+        handle.attach(() -> ran[0] = Thread.currentThread());
+        Thread canceller = new Thread(handle::cancel);
+        canceller.start();
+        canceller.join();
+        assertSame(canceller, ran[0]);
+    }
+
+    @Test
+    public void optionsKeepHandle() {
+        DialogHandle handle = new DialogHandle();
+        assertSame(handle, new DialogOptions().setHandle(handle).getHandle());
+    }
+}
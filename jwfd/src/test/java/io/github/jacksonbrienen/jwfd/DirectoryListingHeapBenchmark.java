@@ -0,0 +1,105 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import javax.swing.filechooser.FileSystemView;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures the heap kept by a <code>DirectoryListing</code> of a directory, against the heap kept by the
+ * <code>File</code> objects of the same directory as <code>BasicDirectoryModel</code> holds them.<br>
+ * Not a test, run it by hand after <code>mvn test-compile</code>:<br>
+ * <code>java -XX:+UseParallelGC -Djava.awt.headless=true -cp target/classes:target/test-classes
+ * io.github.jacksonbrienen.jwfd.DirectoryListingHeapBenchmark [entries] [directory]</code><br>
+ * Without a directory, a temporary directory of empty files is created with the given number of entries, 100 000 by
+ * default, and removed afterwards. Heap use is read from the runtime after forcing collections, so results vary a
+ * little between runs. The serial collector can leave the objects of one run reachable into the next, run it with
+ * the parallel or G1 collector.
+ * @author Jackson Brienen
+ * @version 0.9.0
+ */
+public final class DirectoryListingHeapBenchmark {
+
+    private static final int RUNS = 3;
+
+    // static, so the compiler cannot drop what is measured as soon as it is no longer read
+    private static File[] files;
+    private static DirectoryListing listing;
+
+    private DirectoryListingHeapBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path directory = args.length > 1 ? Paths.get(args[1]) : null;
+        boolean created = directory == null;
+        if(created)
+            directory = createDirectory(entries);
+        try {
+            FileSystemView fsv = FileSystemView.getFileSystemView();
+            File dir = directory.toFile();
+            System.out.println("Directory: " + directory);
+            for(int run = 0; run < RUNS; run++) {
+                long before = usedHeap();
+                // only the File objects themselves, BasicDirectoryModel also keeps them in vectors and caches their attributes,
+                // listed directly as the FileSystemView keeps its last listing reachable, which would hide it from later runs
+                files = dir.listFiles();
+                long filesHeap = usedHeap() - before;
+
+                before = usedHeap();
+                listing = DirectoryListing.load(fsv, dir, DirectoryListing.toPath(fsv, dir));
+                long listingHeap = usedHeap() - before;
+
+                System.out.printf("Run %d: %d entries, File objects %,d bytes (%.1f per entry), listing %,d bytes (%.1f per entry)%n",
+                        run + 1, files.length, filesHeap, (double) filesHeap / files.length,
+                        listingHeap, (double) listingHeap / listing.view().getCount());
+                // neither is counted in the next run
+                files = null;
+                listing = null;
+            }
+        } finally {
+            if(created)
+                deleteDirectory(directory);
+        }
+    }
+
+    private static Path createDirectory(int entries) throws IOException {
+        Path directory = Files.createTempDirectory("jwfd-heap");
+        for(int i = 0; i < entries; i++)
+            Files.createFile(directory.resolve(String.format("file-%07d.txt", i)));
+        return directory;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try(Stream<Path> paths = Files.walk(directory)) {
+            for(Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(path);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // collect until the heap stops shrinking, a single System.gc is only a hint
+        for(int i = 0; i < 8; i++) {
+            System.gc();
+            Thread.sleep(20);
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if(now >= used)
+                break;
+            used = now;
+        }
+        return used;
+    }
+}
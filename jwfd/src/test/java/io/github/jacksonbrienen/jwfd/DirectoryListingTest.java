@@ -0,0 +1,233 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.swing.filechooser.FileSystemView;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNoException;
+
+public class DirectoryListingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileSystemView fsv;
+    private Path directory;
+
+    @Before
+    public void setUp() {
+        fsv = FileSystemView.getFileSystemView();
+        directory = folder.getRoot().toPath();
+    }
+
+    private DirectoryListing load() throws InterruptedException {
+        File dir = directory.toFile();
+        return DirectoryListing.load(fsv, dir, DirectoryListing.toPath(fsv, dir));
+    }
+
+    private DirectoryListing.Entry entry(String name, int size) throws Exception {
+        Path path = directory.resolve(name);
+        Files.write(path, new byte[size]);
+        return DirectoryListing.Entry.read(path);
+    }
+
+    @Test
+    public void loadReadsEveryEntry() throws Exception {
+        Files.write(directory.resolve("a.txt"), new byte[3]);
+        Files.createDirectory(directory.resolve("folder"));
+        DirectoryListing listing = load();
+        assertEquals(directory, listing.getPath());
+        assertEquals(new HashSet<>(Arrays.asList("a.txt", "folder")), new HashSet<>(listing.names()));
+
+        DirectoryListing.View view = listing.view();
+        int file = listing.find("a.txt");
+        int dir = listing.find("folder");
+        assertEquals("a.txt", view.name(file));
+        assertEquals(3, view.size(file));
+        assertFalse(view.isDirectory(file));
+        assertTrue(view.isDirectory(dir));
+        assertEquals(-1, listing.find("missing"));
+    }
+
+    @Test
+    public void loadReadsHiddenFlag() throws Exception {
+        Path hidden = directory.resolve(".hidden");
+        Files.createFile(hidden);
+        Files.createFile(directory.resolve("shown"));
+        DirectoryListing listing = load();
+        DirectoryListing.View view = listing.view();
+        assertEquals(Files.isHidden(hidden), view.isHidden(listing.find(".hidden")));
+        assertFalse(view.isHidden(listing.find("shown")));
+    }
+
+    @Test
+    public void loadFollowsLinks() throws Exception {
+        Path target = Files.createDirectory(directory.resolve("target"));
+        try {
+            Files.createSymbolicLink(directory.resolve("link"), target);
+            Files.createSymbolicLink(directory.resolve("broken"), directory.resolve("missing"));
+        } catch (UnsupportedOperationException | IOException e) {
+            assumeNoException(e);
+        }
+        DirectoryListing listing = load();
+        DirectoryListing.View view = listing.view();
+        assertTrue(view.isDirectory(listing.find("link")));
+        // a link whose target is gone is still listed, by its own attributes
+        int broken = listing.find("broken");
+        assertTrue(broken >= 0);
+        assertFalse(view.isDirectory(broken));
+    }
+
+    @Test
+    public void putAddsNewSlot() throws Exception {
+        DirectoryListing listing = load();
+        int modCount = listing.getModCount();
+        int slot = listing.put(entry("new.txt", 5));
+        assertEquals(slot, listing.find("new.txt"));
+        assertNotEquals(modCount, listing.getModCount());
+        DirectoryListing.View view = listing.view();
+        assertEquals(slot + 1, view.getCount());
+        assertEquals(5, view.size(slot));
+        assertEquals(directory.resolve("new.txt").toFile(), view.file(slot));
+    }
+
+    @Test
+    public void putReplacesSlotOfSameName() throws Exception {
+        DirectoryListing listing = load();
+        int old = listing.put(entry("a.txt", 1));
+        int slot = listing.put(entry("a.txt", 2));
+        assertNotEquals(old, slot);
+        assertEquals(slot, listing.find("a.txt"));
+        DirectoryListing.View view = listing.view();
+        assertTrue(view.isDeleted(old));
+        assertFalse(view.isDeleted(slot));
+        assertEquals(2, view.size(slot));
+        assertEquals(1, listing.names().size());
+    }
+
+    @Test
+    public void removeMarksSlotDeleted() throws Exception {
+        DirectoryListing listing = load();
+        int slot = listing.put(entry("a.txt", 1));
+        assertEquals(slot, listing.remove("a.txt"));
+        assertEquals(-1, listing.find("a.txt"));
+        assertEquals(-1, listing.remove("a.txt"));
+        assertTrue(listing.view().isDeleted(slot));
+        assertTrue(listing.names().isEmpty());
+    }
+
+    @Test
+    public void viewIsUnchangedByLaterChanges() throws Exception {
+        DirectoryListing listing = load();
+        int removed = listing.put(entry("removed.txt", 1));
+        int replaced = listing.put(entry("replaced.txt", 1));
+        DirectoryListing.View view = listing.view();
+
+        listing.remove("removed.txt");
+        listing.put(entry("replaced.txt", 2));
+        listing.put(entry("added.txt", 3));
+
+        assertEquals(2, view.getCount());
+        assertFalse(view.isDeleted(removed));
+        assertFalse(view.isDeleted(replaced));
+        assertEquals(1, view.size(replaced));
+        DirectoryListing.View later = listing.view();
+        assertTrue(later.isDeleted(removed));
+        assertTrue(later.isDeleted(replaced));
+    }
+
+    @Test
+    public void rehashKeepsEveryName() throws Exception {
+        for(int i = 0; i < 500; i++)
+            Files.createFile(directory.resolve("file" + i));
+        DirectoryListing listing = load();
+        // replacing and adding after loading grows the table again
+        for(int i = 0; i < 500; i += 2)
+            listing.put(entry("file" + i, i));
+        for(int i = 500; i < 1000; i++)
+            listing.put(entry("file" + i, i));
+
+        DirectoryListing.View view = listing.view();
+        for(int i = 0; i < 1000; i++) {
+            int slot = listing.find("file" + i);
+            assertTrue("file" + i, slot >= 0);
+            assertEquals("file" + i, view.name(slot));
+            assertEquals(i < 500 && i % 2 != 0 ? 0 : i, view.size(slot));
+        }
+        List<String> names = listing.names();
+        assertEquals(1000, names.size());
+        assertEquals(1000, new HashSet<>(names).size());
+    }
+
+    @Test
+    public void compareNamesIgnoresCaseFirst() throws Exception {
+        DirectoryListing listing = load();
+        int lower = listing.put(entry("apple", 0));
+        int upper = listing.put(entry("Banana", 0));
+        int same = listing.put(entry("APPLE", 0));
+        DirectoryListing.View view = listing.view();
+        assertTrue(view.compareNames(lower, upper) < 0);
+        assertTrue(view.compareNames(upper, lower) > 0);
+        // names only differing in case are still told apart
+        assertNotEquals(0, view.compareNames(lower, same));
+        assertEquals(0, view.compareNames(lower, lower));
+        assertEquals(0, view.compareToPrefix(upper, "ban"));
+        assertTrue(view.nameEndsWith(upper, "ANA"));
+        assertFalse(view.nameEndsWith(upper, "apple"));
+    }
+
+    @Test
+    public void compactKeepsOnlyLiveSlots() throws Exception {
+        DirectoryListing listing = load();
+        listing.put(entry("kept.txt", 7));
+        for(int i = 0; i < 2000; i++)
+            listing.put(entry("changing.txt", i));
+        listing.put(entry("removed.txt", 1));
+        listing.remove("removed.txt");
+        assertTrue(listing.needsCompacting());
+
+        DirectoryListing compacted = listing.compact();
+        assertFalse(compacted.needsCompacting());
+        assertEquals(directory, compacted.getPath());
+        DirectoryListing.View view = compacted.view();
+        assertEquals(2, view.getCount());
+        assertEquals(new HashSet<>(Arrays.asList("kept.txt", "changing.txt")), new HashSet<>(compacted.names()));
+        assertEquals(7, view.size(compacted.find("kept.txt")));
+        assertEquals(1999, view.size(compacted.find("changing.txt")));
+        assertEquals(-1, compacted.find("removed.txt"));
+        // the old listing and its views are left as they were
+        assertEquals(2002, listing.view().getCount());
+    }
+
+    @Test
+    public void fewDeletedSlotsNeedNoCompacting() throws Exception {
+        DirectoryListing listing = load();
+        for(int i = 0; i < 2000; i++)
+            listing.put(entry("file" + i, 0));
+        for(int i = 0; i < 1500; i++)
+            listing.remove("file" + i);
+        // more deleted slots than the threshold, but still not most of them
+        for(int i = 0; i < 1500; i++)
+            listing.put(entry("file" + i, 0));
+        assertFalse(listing.needsCompacting());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.*;
+
+public class ExtensionCountsTest {
+
+    private static final FileExtension TEXT = new FileExtension("Text", "txt");
+    private static final FileExtension IMAGES = new FileExtension("Images", "png", "jpg");
+    private static final FileExtension ARCHIVES = new FileExtension("Archives", "tar.gz", "zip");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot().toPath();
+    }
+
+    private void create(String... names) throws Exception {
+        for(String name : names)
+            Files.createFile(directory.resolve(name));
+    }
+
+    @Test
+    public void choosesFilterMatchingMostFiles() throws Exception {
+        create("a.txt", "b.png", "c.JPG", "d.png");
+        assertSame(IMAGES, ExtensionCounts.choose(directory, TEXT, IMAGES));
+    }
+
+    @Test
+    public void neverChoosesAllFiles() throws Exception {
+        create("a.txt", "b.png");
+        assertSame(TEXT, ExtensionCounts.choose(directory, FileExtension.ALL, TEXT));
+    }
+
+    @Test
+    public void tiesGoToEarlierFilter() throws Exception {
+        create("a.txt", "b.png");
+        assertSame(TEXT, ExtensionCounts.choose(directory, TEXT, IMAGES));
+        assertSame(IMAGES, ExtensionCounts.choose(directory, IMAGES, TEXT));
+    }
+
+    @Test
+    public void countsEveryDottedSuffix() throws Exception {
+        create("a.tar.gz", "b.tar.gz", "c.txt");
+        assertSame(ARCHIVES, ExtensionCounts.choose(directory, TEXT, ARCHIVES));
+    }
+
+    @Test
+    public void hiddenNamesAreNotExtensions() throws Exception {
+        create(".txt", "a.png");
+        assertSame(IMAGES, ExtensionCounts.choose(directory, TEXT, IMAGES));
+    }
+
+    @Test
+    public void nothingChosenWithoutMatches() throws Exception {
+        create("readme", "a.doc");
+        assertNull(ExtensionCounts.choose(directory, TEXT, IMAGES));
+    }
+
+    @Test
+    public void nothingChosenWithoutChoice() throws Exception {
+        create("a.txt");
+        assertNull(ExtensionCounts.choose(directory, TEXT));
+        assertNull(ExtensionCounts.choose(directory));
+        assertNull(ExtensionCounts.choose(directory, (FileExtension[]) null));
+        assertNull(ExtensionCounts.choose(null, TEXT, IMAGES));
+        assertNull(ExtensionCounts.choose(directory.resolve("missing"), TEXT, IMAGES));
+    }
+
+    @Test
+    public void countsAgainOnceModified() throws Exception {
+        create("a.txt", "b.png");
+        assertSame(TEXT, ExtensionCounts.choose(directory, TEXT, IMAGES));
+        create("c.png");
+        // the modification time may not have moved on a coarse clock, so it is moved on by hand
+        Files.setLastModifiedTime(directory, FileTime.fromMillis(Files.getLastModifiedTime(directory).toMillis() + 10_000));
+        assertSame(IMAGES, ExtensionCounts.choose(directory, TEXT, IMAGES));
+    }
+
+    @Test
+    public void moveToFrontKeepsOtherFilters() throws Exception {
+        create("a.png");
+        FileExtension[] filters = {FileExtension.ALL, TEXT, IMAGES};
+        assertArrayEquals(new FileExtension[] {IMAGES, FileExtension.ALL, TEXT}, ExtensionCounts.moveToFront(directory, filters));
+        assertArrayEquals(new FileExtension[] {FileExtension.ALL, TEXT, IMAGES}, filters);
+    }
+
+    @Test
+    public void moveToFrontWithoutChoiceKeepsFilters() throws Exception {
+        create("readme");
+        FileExtension[] filters = {TEXT, IMAGES};
+        assertSame(filters, ExtensionCounts.moveToFront(directory, filters));
+        assertSame(filters, ExtensionCounts.moveToFront(null, filters));
+    }
+}
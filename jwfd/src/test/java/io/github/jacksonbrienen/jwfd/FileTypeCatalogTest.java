@@ -0,0 +1,65 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FileTypeCatalogTest {
+
+    @Test
+    public void findsByExtension() {
+        FileExtension png = FileTypeCatalog.forExtension("png");
+        assertNotNull(png);
+        assertEquals("PNG Image (*.png)", png.getDescription());
+        assertArrayEquals(new String[] {"image/png"}, png.getMimeTypes());
+    }
+
+    @Test
+    public void extensionIgnoresDotAndCase() {
+        FileExtension png = FileTypeCatalog.forExtension("png");
+        assertSame(png, FileTypeCatalog.forExtension(".png"));
+        assertSame(png, FileTypeCatalog.forExtension("PNG"));
+        assertSame(png, FileTypeCatalog.forExtension(".Png"));
+    }
+
+    @Test
+    public void extensionsShareTheirType() {
+        FileExtension jpg = FileTypeCatalog.forExtension("jpg");
+        assertNotNull(jpg);
+        assertSame(jpg, FileTypeCatalog.forExtension("jpeg"));
+        assertSame(jpg, FileTypeCatalog.forExtension("jfif"));
+        assertSame(jpg, FileTypeCatalog.forMimeType("image/jpeg"));
+        assertSame(jpg, FileTypeCatalog.forMimeType("image/pjpeg"));
+    }
+
+    @Test
+    public void mimeTypeIgnoresParametersAndCase() {
+        FileExtension png = FileTypeCatalog.forExtension("png");
+        assertSame(png, FileTypeCatalog.forMimeType("IMAGE/PNG"));
+        assertSame(png, FileTypeCatalog.forMimeType("image/png; charset=binary"));
+        assertSame(png, FileTypeCatalog.forMimeType(" image/png ;q=0.5"));
+    }
+
+    @Test
+    public void unknownTypesAreNull() {
+        assertNull(FileTypeCatalog.forExtension("no-such-extension"));
+        assertNull(FileTypeCatalog.forExtension(""));
+        assertNull(FileTypeCatalog.forMimeType("application/x-no-such-type"));
+    }
+
+    @Test
+    public void publicLookupsUseTheCatalog() {
+        assertSame(FileTypeCatalog.forExtension("gif"), FileExtension.forExtension("gif"));
+        assertSame(FileTypeCatalog.forMimeType("image/gif"), FileExtension.forMimeType("image/gif"));
+        assertNull(FileExtension.forExtension(null));
+        assertNull(FileExtension.forMimeType(null));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class JFileDialogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            for(Window window : Window.getWindows())
+                window.dispose();
+        });
+    }
+
+    @Test(timeout = 10000)
+    public void cancelledHandleReturnsWithoutShowing() {
+        DialogHandle handle = new DialogHandle();
+        handle.cancel();
+        DialogOptions options = new DialogOptions().setHandle(handle);
+        assertNull(JFileDialog.showOpenDialog(null, "Cancelled", folder.getRoot(), options, true));
+        for(Window window : Window.getWindows())
+            assertFalse(window.isShowing());
+    }
+
+    @Test(timeout = 10000)
+    public void timeoutCancelsAndDisposesOwnedWindows() throws Exception {
+        assumeFalse(GraphicsEnvironment.isHeadless());
+        CompletableFuture<Window> owned = openOwnedWindow("Timeout", () -> {});
+        DialogOptions options = new DialogOptions().setTimeout(Duration.ofSeconds(2));
+        assertNull(JFileDialog.showOpenDialog(null, "Timeout", folder.getRoot(), options, true));
+        assertFalse(owned.get(1, TimeUnit.SECONDS).isDisplayable());
+    }
+
+    @Test(timeout = 10000)
+    public void handleCancelsAndDisposesOwnedWindows() throws Exception {
+        assumeFalse(GraphicsEnvironment.isHeadless());
+        DialogHandle handle = new DialogHandle();
+        // cancelled from a thread other than the one showing the dialog, once the dialog and its owned window are showing
+        CompletableFuture<Window> owned = openOwnedWindow("Handle", handle::cancel);
+        DialogOptions options = new DialogOptions().setHandle(handle);
+        assertNull(JFileDialog.showMultiDialog(null, "Handle", folder.getRoot(), options, true));
+        assertFalse(owned.get(1, TimeUnit.SECONDS).isDisplayable());
+        assertTrue(handle.isCancelled());
+    }
+
+    // waits for the dialog of a title to show, opens a window owned by it as a message would be, then runs an action
+    private static CompletableFuture<Window> openOwnedWindow(String title, Runnable then) {
+        CompletableFuture<Window> owned = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                Window[] opened = new Window[1];
+                while(opened[0] == null) {
+                    Thread.sleep(20);
+                    SwingUtilities.invokeAndWait(() -> {
+                        for(Window window : Window.getWindows()) {
+                            if(window instanceof Dialog && title.equals(((Dialog) window).getTitle()) && window.isShowing()) {
+                                JDialog message = new JDialog((Dialog) window, "Message");
+                                message.setVisible(true);
+                                opened[0] = message;
+                                return;
+                            }
+                        }
+                    });
+                }
+                owned.complete(opened[0]);
+                then.run();
+            } catch (Exception e) {
+                owned.completeExceptionally(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return owned;
+    }
+}
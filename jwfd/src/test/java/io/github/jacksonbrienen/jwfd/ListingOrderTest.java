@@ -0,0 +1,118 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.swing.filechooser.FileSystemView;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ListingOrderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // lists files of the given names and sizes, and folders for names ending with a slash
+    private DirectoryListing.View list(Object... namesAndSizes) throws Exception {
+        Path directory = folder.newFolder().toPath();
+        for(int i = 0; i < namesAndSizes.length; i += 2) {
+            String name = (String) namesAndSizes[i];
+            if(name.endsWith("/"))
+                Files.createDirectory(directory.resolve(name.substring(0, name.length() - 1)));
+            else
+                Files.write(directory.resolve(name), new byte[(Integer) namesAndSizes[i + 1]]);
+        }
+        FileSystemView fsv = FileSystemView.getFileSystemView();
+        File dir = directory.toFile();
+        return DirectoryListing.load(fsv, dir, DirectoryListing.toPath(fsv, dir)).view();
+    }
+
+    private static List<String> sort(ListingOrder order, DirectoryListing.View view) {
+        int[] slots = new int[view.getCount()];
+        for(int i = 0; i < slots.length; i++)
+            slots[i] = i;
+        order.sort(view, view::isDirectory, slots);
+        List<String> names = new ArrayList<>();
+        for(int slot : slots)
+            names.add(view.name(slot));
+        return names;
+    }
+
+    @Test
+    public void naturalSortOrdersNumbersByValue() throws Exception {
+        DirectoryListing.View view = list("img10.png", 0, "img2.png", 0, "img1.png", 0, "img20.png", 0, "img3.png", 0);
+        assertEquals(Arrays.asList("img1.png", "img2.png", "img3.png", "img10.png", "img20.png"),
+                sort(ListingOrder.DEFAULT.withNatural(true), view));
+    }
+
+    @Test
+    public void defaultSortOrdersNumbersByCharacter() throws Exception {
+        DirectoryListing.View view = list("img10.png", 0, "img2.png", 0, "img1.png", 0);
+        assertEquals(Arrays.asList("img1.png", "img10.png", "img2.png"), sort(ListingOrder.DEFAULT, view));
+    }
+
+    @Test
+    public void naturalSortComparesSeveralRuns() throws Exception {
+        DirectoryListing.View view = list("v1.10", 0, "v1.9", 0, "v2.0", 0, "v1.2", 0, "v", 0);
+        assertEquals(Arrays.asList("v", "v1.2", "v1.9", "v1.10", "v2.0"), sort(ListingOrder.DEFAULT.withNatural(true), view));
+    }
+
+    @Test
+    public void naturalSortIgnoresCase() throws Exception {
+        DirectoryListing.View view = list("b2", 0, "B10", 0, "a1", 0);
+        assertEquals(Arrays.asList("a1", "b2", "B10"), sort(ListingOrder.DEFAULT.withNatural(true), view));
+    }
+
+    @Test
+    public void directoriesComeFirst() throws Exception {
+        DirectoryListing.View view = list("b.txt", 0, "folder10/", 0, "a.txt", 0, "folder9/", 0);
+        assertEquals(Arrays.asList("folder9", "folder10", "a.txt", "b.txt"), sort(ListingOrder.DEFAULT.withNatural(true), view));
+    }
+
+    @Test
+    public void sizeSortBreaksTiesByName() throws Exception {
+        DirectoryListing.View view = list("file10", 5, "big", 50, "file2", 5, "small", 1);
+        ListingOrder bySize = ListingOrder.DEFAULT.withNatural(true).withKey(ListingOrder.Key.SIZE, true);
+        assertEquals(Arrays.asList("small", "file2", "file10", "big"), sort(bySize, view));
+        assertEquals(Arrays.asList("big", "file10", "file2", "small"), sort(bySize.withKey(ListingOrder.Key.SIZE, false), view));
+    }
+
+    @Test
+    public void compareAgreesWithSort() throws Exception {
+        DirectoryListing.View view = list("img10.png", 0, "img9.png", 0);
+        ListingOrder natural = ListingOrder.DEFAULT.withNatural(true);
+        List<String> sorted = sort(natural, view);
+        int first = sorted.get(0).equals(view.name(0)) ? 0 : 1;
+        assertTrue(natural.compare(view, view::isDirectory, first, 1 - first) < 0);
+        assertTrue(natural.compare(view, view::isDirectory, 1 - first, first) > 0);
+    }
+
+    @Test
+    public void ordersAreValues() {
+        ListingOrder natural = ListingOrder.DEFAULT.withNatural(true);
+        assertTrue(natural.isNatural());
+        assertFalse(ListingOrder.DEFAULT.isNatural());
+        assertEquals(natural, ListingOrder.DEFAULT.withNatural(true));
+        assertEquals(natural.hashCode(), ListingOrder.DEFAULT.withNatural(true).hashCode());
+        assertNotEquals(ListingOrder.DEFAULT, natural);
+        ListingOrder byDate = natural.withKey(ListingOrder.Key.DATE, false);
+        assertEquals(ListingOrder.Key.DATE, byDate.getKey());
+        assertFalse(byDate.isAscending());
+        assertTrue(byDate.isNatural());
+    }
+}
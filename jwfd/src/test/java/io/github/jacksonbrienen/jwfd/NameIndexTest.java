@@ -0,0 +1,130 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.swing.filechooser.FileSystemView;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NameIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DirectoryListing listing;
+
+    @Before
+    public void setUp() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        for(String name : Arrays.asList("Report.txt", "readme.md", "re", "rEcipes", "notes.txt", "Zebra", "a"))
+            Files.createFile(directory.resolve(name));
+        FileSystemView fsv = FileSystemView.getFileSystemView();
+        File dir = directory.toFile();
+        listing = DirectoryListing.load(fsv, dir, DirectoryListing.toPath(fsv, dir));
+    }
+
+    private NameIndex build(DirectoryListing.View view) {
+        int[] rows = new int[view.getCount()];
+        for(int i = 0; i < rows.length; i++)
+            rows[i] = i;
+        return NameIndex.build(view, rows);
+    }
+
+    @Test
+    public void completeIgnoresCase() {
+        DirectoryListing.View view = listing.view();
+        NameIndex index = build(view);
+        assertEquals(Arrays.asList("re", "readme.md", "rEcipes", "Report.txt"), index.complete(view, "RE", 10));
+        assertEquals(Arrays.asList("Report.txt"), index.complete(view, "rep", 10));
+        assertEquals(Arrays.asList("Zebra"), index.complete(view, "z", 10));
+    }
+
+    @Test
+    public void completeStopsAtLimit() {
+        DirectoryListing.View view = listing.view();
+        assertEquals(Arrays.asList("re", "readme.md"), build(view).complete(view, "re", 2));
+    }
+
+    @Test
+    public void completeFindsNothing() {
+        DirectoryListing.View view = listing.view();
+        NameIndex index = build(view);
+        assertTrue(index.complete(view, "q", 10).isEmpty());
+        assertTrue(index.complete(view, "readme.md.bak", 10).isEmpty());
+    }
+
+    @Test
+    public void emptyPrefixCompletesEveryName() {
+        DirectoryListing.View view = listing.view();
+        assertEquals(7, build(view).complete(view, "", 10).size());
+    }
+
+    @Test
+    public void buildOnlyIndexesRows() {
+        DirectoryListing.View view = listing.view();
+        int[] rows = {listing.find("Report.txt"), listing.find("notes.txt")};
+        NameIndex index = NameIndex.build(view, rows);
+        assertEquals(Arrays.asList("Report.txt"), index.complete(view, "r", 10));
+        // the rows given are left as they were
+        assertEquals(listing.find("Report.txt"), rows[0]);
+    }
+
+    @Test
+    public void addRemoveAndReplaceKeepOrder() throws Exception {
+        DirectoryListing.View view = listing.view();
+        NameIndex index = build(view);
+
+        Path added = folder.getRoot().toPath().resolve("Red");
+        Files.createFile(added);
+        int red = listing.put(DirectoryListing.Entry.read(added));
+        int old = listing.find("re");
+        listing.remove("re");
+        int oldReport = listing.find("Report.txt");
+        int report = listing.put(DirectoryListing.Entry.read(folder.getRoot().toPath().resolve("Report.txt")));
+
+        view = listing.view();
+        index.add(view, red);
+        index.add(view, red);
+        index.remove(view, old);
+        index.replace(view, oldReport, report);
+        assertEquals(Arrays.asList("readme.md", "rEcipes", "Red", "Report.txt"), index.complete(view, "re", 10));
+    }
+
+    @Test
+    public void largeIndexIsSorted() throws Exception {
+        Path directory = folder.newFolder("large").toPath();
+        List<String> names = new ArrayList<>();
+        // above the size sorted in parallel, in an order unrelated to the names
+        for(int i = 0; i < 20_000; i++)
+            names.add(Integer.toString(i * 7919 % 20_000, 36) + (i % 2 == 0 ? "x" : "Y"));
+        for(String name : names)
+            Files.createFile(directory.resolve(name));
+        FileSystemView fsv = FileSystemView.getFileSystemView();
+        DirectoryListing large = DirectoryListing.load(fsv, directory.toFile(), directory);
+        DirectoryListing.View view = large.view();
+
+        List<String> completed = build(view).complete(view, "", names.size());
+        List<String> expected = new ArrayList<>(completed);
+        Collections.sort(expected, (a, b) -> view.compareNames(large.find(a), large.find(b)));
+        assertEquals(names.size(), completed.size());
+        assertEquals(expected, completed);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class PathSelectionTest {
+
+    // a root and directories of the default file system, whatever the platform running the tests
+    private static final Path ROOT = Paths.get("").toAbsolutePath().getRoot();
+    private static final Path FIRST = ROOT.resolve("first");
+    private static final Path SECOND = ROOT.resolve("second");
+
+    @Test
+    public void decodeEmpty() {
+        PathSelection selection = PathSelection.decode("", '\\');
+        assertTrue(selection.isEmpty());
+        assertEquals(0, selection.size());
+    }
+
+    @Test
+    public void decodeSingleDirectory() {
+        PathSelection selection = PathSelection.decode("C:\\Users\\me\0a.txt\0b.txt\0", '\\');
+        assertEquals(2, selection.size());
+        assertEquals(Paths.get("C:\\Users\\me"), selection.getDirectory(0));
+        assertEquals(Paths.get("C:\\Users\\me"), selection.getDirectory(1));
+        assertEquals("a.txt", selection.getName(0));
+        assertEquals("b.txt", selection.getName(1));
+    }
+
+    @Test
+    public void decodeDriveRoot() {
+        PathSelection selection = PathSelection.decode("C:\\\0a.txt\0", '\\');
+        assertEquals(1, selection.size());
+        assertEquals(Paths.get("C:\\"), selection.getDirectory(0));
+        assertEquals("a.txt", selection.getName(0));
+    }
+
+    @Test
+    public void decodeMultipleDirectories() {
+        PathSelection selection = PathSelection.decode("C:\\a\0x\0D:\\b\0y\0z\0", '\\');
+        assertEquals(3, selection.size());
+        assertEquals(Paths.get("C:\\a"), selection.getDirectory(0));
+        assertEquals(Paths.get("D:\\b"), selection.getDirectory(1));
+        assertEquals(Paths.get("D:\\b"), selection.getDirectory(2));
+        assertEquals("x", selection.getName(0));
+        assertEquals("y", selection.getName(1));
+        assertEquals("z", selection.getName(2));
+    }
+
+    @Test
+    public void decodeWithoutTrailingNull() {
+        String separator = ROOT.getFileSystem().getSeparator();
+        PathSelection selection = PathSelection.decode(FIRST + "\0x\0y", separator.charAt(0));
+        assertEquals(2, selection.size());
+        assertEquals(FIRST.resolve("x"), selection.get(0));
+        assertEquals(FIRST.resolve("y"), selection.get(1));
+    }
+
+    @Test
+    public void ofFilesEmpty() {
+        assertTrue(PathSelection.of(new File[0]).isEmpty());
+    }
+
+    @Test
+    public void ofFilesRoot() {
+        PathSelection selection = PathSelection.of(new File[] {ROOT.toFile()});
+        assertEquals(1, selection.size());
+        assertEquals(ROOT, selection.getDirectory(0));
+        assertEquals("", selection.getName(0));
+        assertEquals(ROOT, selection.get(0));
+    }
+
+    @Test
+    public void ofFilesMultipleDirectories() {
+        PathSelection selection = PathSelection.of(new File[] {
+                FIRST.resolve("a.txt").toFile(), FIRST.resolve("b.txt").toFile(), SECOND.resolve("c.txt").toFile()
+        });
+        assertEquals(3, selection.size());
+        assertEquals(FIRST, selection.getDirectory(0));
+        assertEquals(FIRST, selection.getDirectory(1));
+        assertEquals(SECOND, selection.getDirectory(2));
+        assertEquals(FIRST.resolve("a.txt"), selection.get(0));
+        assertEquals(FIRST.resolve("b.txt"), selection.get(1));
+        assertEquals(SECOND.resolve("c.txt"), selection.get(2));
+    }
+
+    @Test
+    public void ofPathsMatchesOfFiles() {
+        String[] paths = {FIRST.resolve("a.txt").toString(), SECOND.resolve("b.txt").toString(), ROOT.toString()};
+        File[] files = {new File(paths[0]), new File(paths[1]), new File(paths[2])};
+        assertEquals(PathSelection.of(files), PathSelection.of(paths));
+        assertEquals(ROOT, PathSelection.of(paths).getDirectory(2));
+    }
+
+    @Test
+    public void ofRelativePathIsAbsolute() {
+        PathSelection selection = PathSelection.of(new String[] {"relative.txt"});
+        assertEquals(Paths.get("relative.txt").toAbsolutePath(), selection.get(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getNameOutOfRange() {
+        PathSelection.decode("C:\\a\0x\0", '\\').getName(1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void isUnmodifiable() {
+        PathSelection.decode("C:\\a\0x\0", '\\').add(FIRST);
+    }
+}
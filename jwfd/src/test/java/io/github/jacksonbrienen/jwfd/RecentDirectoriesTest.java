@@ -0,0 +1,163 @@
+/*
+ * Content Protected VIA GPL-2.0-only
+ * https://www.gnu.org/licenses/old-licenses/gpl-2.0.en.html
+ * Copyright (c) 2024 Jackson Brienen
+ * https://github.com/JacksonBrienen/JWindowsFileDialog
+ *
+ * **PLEASE DO NOT REMOVE THIS HEADER**
+ */
+package io.github.jacksonbrienen.jwfd;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecentDirectoriesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private Path a, b, c;
+
+    @Before
+    public void setUp() throws Exception {
+        file = folder.getRoot().toPath().resolve("store").resolve("recent.tsv");
+        a = folder.newFolder("a").toPath();
+        b = folder.newFolder("b").toPath();
+        c = folder.newFolder("c").toPath();
+    }
+
+    @Test
+    public void emptyWithoutFile() {
+        RecentDirectories recent = new RecentDirectories(file);
+        assertEquals(Collections.emptyList(), recent.get(null));
+        assertNull(recent.findStart(null));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void mostRecentFirst() throws Exception {
+        RecentDirectories recent = new RecentDirectories(file);
+        recent.add("export", a);
+        recent.add("export", b);
+        recent.add("export", a);
+        assertEquals(Arrays.asList(a, b), recent.get("export"));
+    }
+
+    @Test
+    public void capacityDropsLeastRecent() throws Exception {
+        RecentDirectories recent = new RecentDirectories(file, 2);
+        recent.add(null, a);
+        recent.add(null, b);
+        recent.add(null, c);
+        assertEquals(Arrays.asList(c, b), recent.get(null));
+        assertEquals(Arrays.asList(c, b), new RecentDirectories(file, 2).get(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() {
+        new RecentDirectories(file, 0);
+    }
+
+    @Test
+    public void persistsAcrossInstances() throws Exception {
+        new RecentDirectories(file).add("import", a);
+        new RecentDirectories(file).add("export", b);
+        RecentDirectories read = new RecentDirectories(file);
+        assertEquals(Collections.singletonList(a), read.get("import"));
+        assertEquals(Collections.singletonList(b), read.get("export"));
+        assertEquals(Collections.emptyList(), read.get(null));
+    }
+
+    @Test
+    public void seesChangesOfOtherInstances() throws Exception {
+        RecentDirectories first = new RecentDirectories(file);
+        RecentDirectories second = new RecentDirectories(file);
+        first.add(null, a);
+        assertEquals(Collections.singletonList(a), second.get(null));
+        second.add(null, b);
+        assertEquals(Arrays.asList(b, a), first.get(null));
+    }
+
+    @Test
+    public void storesAbsolutePaths() throws Exception {
+        RecentDirectories recent = new RecentDirectories(file);
+        recent.add(null, Paths.get("relative"));
+        assertEquals(Collections.singletonList(Paths.get("relative").toAbsolutePath()), recent.get(null));
+    }
+
+    @Test
+    public void directoriesAreNormalized() throws Exception {
+        RecentDirectories recent = new RecentDirectories(file);
+        recent.add(null, a.resolve("..").resolve("b"));
+        recent.add(null, b.resolve("."));
+        assertEquals(Collections.singletonList(b), recent.get(null));
+    }
+
+    @Test
+    public void fileIsNormalized() throws Exception {
+        RecentDirectories first = new RecentDirectories(file.getParent().resolve("..").resolve("store").resolve("recent.tsv"));
+        first.add(null, a);
+        assertEquals(Collections.singletonList(a), new RecentDirectories(file).get(null));
+    }
+
+    @Test
+    public void clearRemovesOnlyItsContext() throws Exception {
+        RecentDirectories recent = new RecentDirectories(file);
+        recent.add("import", a);
+        recent.add("export", b);
+        recent.clear("import");
+        assertEquals(Collections.emptyList(), new RecentDirectories(file).get("import"));
+        assertEquals(Collections.singletonList(b), new RecentDirectories(file).get("export"));
+    }
+
+    @Test
+    public void findStartSkipsMissingDirectories() throws Exception {
+        RecentDirectories recent = new RecentDirectories(file);
+        recent.add(null, a);
+        recent.add(null, b);
+        Files.delete(b);
+        assertEquals(a, recent.findStart(null));
+        Files.delete(a);
+        assertNull(recent.findStart(null));
+    }
+
+    @Test
+    public void returnedListIsUnmodifiable() throws Exception {
+        RecentDirectories recent = new RecentDirectories(file);
+        recent.add(null, a);
+        List<Path> directories = recent.get(null);
+        try {
+            directories.add(b);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+            assertEquals(Collections.singletonList(a), recent.get(null));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void contextCannotHoldTab() throws Exception {
+        new RecentDirectories(file).add("bad\tcontext", a);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void directoryCannotHoldLineBreak() throws Exception {
+        new RecentDirectories(file).add(null, a.resolve("bad\nname"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void optionsRejectContextWithLineBreak() {
+        new DialogOptions().setRecentDirectories(new RecentDirectories(file), "bad\ncontext");
+    }
+}